@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dtolabs.rundeck.core.Constants;
+
+/**
+ * Measures IfElse.ifElse() for every operator, with and without elevation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IfElseBenchmark {
+
+	@Param({ IfElse.STRING_EQ, IfElse.STRING_NE, IfElse.STRING_LT, IfElse.STRING_LE, IfElse.STRING_GE,
+			IfElse.STRING_GT, IfElse.STRING_BEG, IfElse.STRING_END, IfElse.STRING_MATCH, IfElse.NUMBER_EQ,
+			IfElse.NUMBER_NE, IfElse.NUMBER_LT, IfElse.NUMBER_LE, IfElse.NUMBER_GE, IfElse.NUMBER_GT })
+	public String operator;
+
+	@Param({ "false", "true" })
+	public boolean elevate;
+
+	private IfElse ifElse;
+
+	private String testValue;
+
+	private String comparisonValue;
+
+	@Setup
+	public void setUp() {
+		StepContextStub stub = new StepContextStub().withLogLevel(Constants.INFO_LEVEL);
+		ifElse = new IfElse(stub.getContext()).setElevate(elevate).setCfg(Collections.emptyMap());
+		boolean numeric = !Character.isLetter(operator.charAt(0));
+		testValue = numeric ? "1234.5" : "production-web-01";
+		comparisonValue = numeric ? "1000" : "production";
+	}
+
+	@Benchmark
+	public void ifElse() {
+		ifElse.ifElse("raft", "test", testValue, operator, comparisonValue, "yes", "no");
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dtolabs.rundeck.core.Constants;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Measures Switch.switchCase() across table sizes, match positions,
+ * evaluation strategies and elevation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwitchBenchmark {
+
+	@Param({ "10", "100", "1000", "10000", "100000" })
+	public int tableSize;
+
+	/** Which case the test value matches: the first, the last, or none. */
+	@Param({ "first", "last", "miss" })
+	public String position;
+
+	@Param({ "false", "true" })
+	public boolean elevate;
+
+	@Param({ "false", "true" })
+	public boolean streaming;
+
+	private Switch switchCase;
+
+	private String cases;
+
+	private String testValue;
+
+	@Setup
+	public void setUp() {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < tableSize; i++) {
+			builder.append("\"key-").append(i).append("\": \"value-").append(i).append("\",");
+		}
+		cases = builder.toString();
+		switch (position) {
+		case "first":
+			testValue = "key-0";
+			break;
+		case "last":
+			testValue = "key-" + (tableSize - 1);
+			break;
+		default:
+			testValue = "no-such-key";
+		}
+		StepContextStub stub = new StepContextStub().withLogLevel(Constants.INFO_LEVEL);
+		switchCase = new Switch(stub.getContext(), Collections.emptyMap(), "default").setStreaming(streaming);
+	}
+
+	@Benchmark
+	public void switchCase() throws JsonProcessingException {
+		switchCase.switchCase("raft", "test", cases, testValue, elevate);
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The keys and results of a cases string, in the order they were given.
+ */
+public class CaseEntries {
+
+	/** Encodes entries for the on-disk cache. */
+	static final DiskCache.Codec<CaseEntries> CODEC = new DiskCache.Codec<CaseEntries>() {
+		@Override
+		public void write(CaseEntries entries, DataOutput out) throws IOException {
+			out.writeInt(entries.size());
+			for (int i = 0; i < entries.size(); i++) {
+				DiskCache.writeString(out, entries.getKey(i));
+				entries.getResult(i).write(out);
+			}
+		}
+
+		@Override
+		public CaseEntries read(DataInput in) throws IOException {
+			int size = in.readInt();
+			List<String> keys = new ArrayList<>();
+			List<CaseResult> results = new ArrayList<>();
+			for (int i = 0; i < size; i++) {
+				keys.add(DiskCache.readString(in));
+				results.add(CaseResult.read(in));
+			}
+			return new CaseEntries(keys, results);
+		}
+	};
+
+	private final List<String> keys;
+
+	private final List<CaseResult> results;
+
+	CaseEntries(List<String> keys, List<CaseResult> results) {
+		this.keys = keys;
+		this.results = results;
+	}
+
+	/**
+	 * Parse a cases string.
+	 *
+	 * @param cases The switch cases as members of a JSON object, or as
+	 *              compact key:value pairs separated by semicolons.
+	 * @return The entries.
+	 * @throws JsonProcessingException If the cases cannot be parsed.
+	 */
+	public static CaseEntries parse(String cases) throws JsonProcessingException {
+		return CaseParser.parse(cases);
+	}
+
+	public int size() {
+		return keys.size();
+	}
+
+	public String getKey(int index) {
+		return keys.get(index);
+	}
+
+	public CaseResult getResult(int index) {
+		return results.get(index);
+	}
+}
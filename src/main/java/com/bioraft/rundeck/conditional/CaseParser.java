@@ -0,0 +1,481 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single-pass parser for switch cases, reading the cases text directly into
+ * keys and results without building a JSON tree.
+ *
+ * Two syntaxes are accepted:
+ * <ul>
+ * <li>JSON object members, with or without the enclosing braces and with an
+ * optional trailing comma, e.g. "a": "1", "b": {"x": "2"},</li>
+ * <li>compact pairs, e.g. a:1;b:2, where keys and values are bare text
+ * (trimmed), or quoted strings, and a value may be a JSON object.</li>
+ * </ul>
+ * Text that starts with a brace or a quote is read as JSON members, which may
+ * also be separated by semicolons. In JSON members, scalar values are
+ * rendered as JsonNode.asText() would render them, so 2.50 becomes "2.5"; in
+ * compact pairs bare values are kept as written.
+ */
+public class CaseParser {
+
+	private final String text;
+
+	private final int length;
+
+	private int pos;
+
+	/** Whether the string last skipped contained an escape. */
+	private boolean escaped;
+
+	private CaseParser(String text) {
+		this.text = text == null ? "" : text;
+		this.length = this.text.length();
+	}
+
+	/**
+	 * Parse all cases. When a key is repeated, it keeps its first position and
+	 * takes its last value, as it would in a parsed JSON object.
+	 *
+	 * @param cases The cases text.
+	 * @return The entries.
+	 * @throws CaseSyntaxException If the cases cannot be parsed.
+	 */
+	public static CaseEntries parse(String cases) throws CaseSyntaxException {
+		CaseParser parser = new CaseParser(cases);
+		List<String> keys = new ArrayList<>();
+		List<CaseResult> results = new ArrayList<>();
+		Map<String, Integer> positions = new HashMap<>();
+		parser.read(null, (key, result) -> {
+			Integer position = positions.putIfAbsent(key, keys.size());
+			if (position == null) {
+				keys.add(key);
+				results.add(result);
+			} else {
+				results.set(position, result);
+			}
+		});
+		return new CaseEntries(keys, results);
+	}
+
+	/**
+	 * Find the result for a single test string. When the key is repeated its
+	 * last case wins, as in parse, so all the cases are scanned; values of
+	 * other cases are skipped without being read.
+	 *
+	 * @param cases The cases text.
+	 * @param test  The string to test the cases against.
+	 * @return The matched result, or null if no case matches.
+	 * @throws CaseSyntaxException If the cases cannot be parsed up to the
+	 *                             point of the match.
+	 */
+	public static CaseResult find(String cases, String test) throws CaseSyntaxException {
+		CaseResult[] found = new CaseResult[1];
+		new CaseParser(cases).read(test, (key, result) -> found[0] = result);
+		return found[0];
+	}
+
+	private interface Sink {
+		void accept(String key, CaseResult result);
+	}
+
+	/**
+	 * Read the cases. If test is null every case is passed to the sink;
+	 * otherwise only the cases with that key are.
+	 */
+	private void read(String test, Sink sink) throws CaseSyntaxException {
+		skipWhitespace();
+		boolean json = pos < length && (text.charAt(pos) == '{' || text.charAt(pos) == '"');
+		if (pos < length && text.charAt(pos) == '{') {
+			pos++;
+		}
+		while (true) {
+			skipWhitespace();
+			if (pos == length) {
+				return;
+			}
+			char c = text.charAt(pos);
+			if (c == '}' && json) {
+				break;
+			}
+			if (c == ',' && json || c == ';') {
+				pos++;
+				continue;
+			}
+
+			// Key, compared with the test string before anything is copied.
+			int keyStart = pos;
+			String key = null;
+			boolean matched;
+			if (c == '"') {
+				int end = skipString();
+				if (!escaped) {
+					matched = test == null || regionEquals(keyStart + 1, end - 1, test);
+					if (test == null) {
+						key = text.substring(keyStart + 1, end - 1);
+					}
+				} else {
+					key = unescape(keyStart + 1, end - 1);
+					matched = test == null || key.equals(test);
+				}
+			} else if (json) {
+				throw error("Expected a quoted case key", pos);
+			} else {
+				int end = text.indexOf(':', pos);
+				int separator = text.indexOf(';', pos);
+				if (end < 0 || separator >= 0 && separator < end) {
+					throw error("Expected ':' after case key", separator < 0 ? length : separator);
+				}
+				int start = pos;
+				pos = end;
+				int trimmedEnd = trimEnd(start, end);
+				matched = test == null || regionEquals(start, trimmedEnd, test);
+				if (test == null) {
+					key = text.substring(start, trimmedEnd);
+				}
+			}
+
+			skipWhitespace();
+			if (pos == length || text.charAt(pos) != ':') {
+				throw error("Expected ':' after case key", pos);
+			}
+			pos++;
+			skipWhitespace();
+
+			if (matched) {
+				sink.accept(test == null ? key : test, readValue(json));
+			} else {
+				skipValue(json);
+			}
+
+			skipWhitespace();
+			if (pos < length) {
+				c = text.charAt(pos);
+				if (!(c == ';' || json && (c == ',' || c == '}'))) {
+					throw error(json ? "Expected ',' or '}' after case value" : "Expected ';' after case value", pos);
+				}
+			}
+		}
+
+		// Only closing braces may follow the cases.
+		while (pos < length && (text.charAt(pos) == '}' || Character.isWhitespace(text.charAt(pos)))) {
+			pos++;
+		}
+		if (pos < length) {
+			throw error("Unexpected text after cases", pos);
+		}
+	}
+
+	private CaseResult readValue(boolean json) throws CaseSyntaxException {
+		if (pos == length) {
+			return json ? CaseResult.of(scalar()) : CaseResult.of("");
+		}
+		char c = text.charAt(pos);
+		if (c == '{') {
+			return readFields();
+		}
+		if (json || c == '"') {
+			return CaseResult.of(scalar());
+		}
+		return CaseResult.of(text.substring(pos, pos = bareEnd()));
+	}
+
+	private void skipValue(boolean json) throws CaseSyntaxException {
+		if (pos < length && !json && text.charAt(pos) != '{' && text.charAt(pos) != '"') {
+			pos = bareEnd();
+		} else {
+			skipJson();
+		}
+	}
+
+	/** End of a bare compact value: before the next ';', with trailing whitespace trimmed. */
+	private int bareEnd() {
+		int separator = text.indexOf(';', pos);
+		return trimEnd(pos, separator < 0 ? length : separator);
+	}
+
+	/**
+	 * Read an object-valued case. A repeated field keeps its first position
+	 * and takes its last value.
+	 */
+	private CaseResult readFields() throws CaseSyntaxException {
+		int open = pos++;
+		List<String[]> fields = new ArrayList<>();
+		skipWhitespace();
+		if (pos < length && text.charAt(pos) == '}') {
+			pos++;
+			return CaseResult.ofFields(fields);
+		}
+		while (true) {
+			skipWhitespace();
+			if (pos == length) {
+				throw error("Unclosed object value", open);
+			}
+			if (text.charAt(pos) != '"') {
+				throw error("Expected a quoted field name", pos);
+			}
+			String field = string();
+			skipWhitespace();
+			if (pos == length || text.charAt(pos) != ':') {
+				throw error("Expected ':' after field name", pos);
+			}
+			pos++;
+			skipWhitespace();
+			String value = scalar();
+			boolean replaced = false;
+			for (String[] existing : fields) {
+				if (existing[0].equals(field)) {
+					existing[1] = value;
+					replaced = true;
+				}
+			}
+			if (!replaced) {
+				fields.add(new String[] { field, value });
+			}
+			skipWhitespace();
+			if (pos == length) {
+				// Closing braces missing at the end of the cases are implied.
+				return CaseResult.ofFields(fields);
+			}
+			char c = text.charAt(pos++);
+			if (c == '}') {
+				return CaseResult.ofFields(fields);
+			}
+			if (c != ',') {
+				throw error("Expected ',' or '}' in object value", pos - 1);
+			}
+		}
+	}
+
+	/** Read a JSON value as JsonNode.asText() would render it; containers render as "". */
+	private String scalar() throws CaseSyntaxException {
+		if (pos == length) {
+			throw error("Expected a case value", pos);
+		}
+		char c = text.charAt(pos);
+		switch (c) {
+		case '"':
+			return string();
+		case '{':
+		case '[':
+			skipJson();
+			return "";
+		case 't':
+			return literal("true");
+		case 'f':
+			return literal("false");
+		case 'n':
+			return literal("null");
+		default:
+			if (c == '-' || c >= '0' && c <= '9') {
+				return number();
+			}
+			throw error("Unexpected character '" + c + "'", pos);
+		}
+	}
+
+	private String literal(String word) throws CaseSyntaxException {
+		if (!text.startsWith(word, pos)) {
+			throw error("Expected '" + word + "'", pos);
+		}
+		pos += word.length();
+		return word;
+	}
+
+	/** Read a JSON number, rendered the way Jackson renders int, long, big integer and double nodes. */
+	private String number() throws CaseSyntaxException {
+		int start = pos;
+		if (text.charAt(pos) == '-') {
+			pos++;
+		}
+		int digits = digits();
+		if (digits == 0 || digits > 1 && text.charAt(pos - digits) == '0') {
+			throw error("Invalid number", start);
+		}
+		boolean integral = true;
+		if (pos < length && text.charAt(pos) == '.') {
+			pos++;
+			integral = false;
+			if (digits() == 0) {
+				throw error("Invalid number", start);
+			}
+		}
+		if (pos < length && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+			pos++;
+			integral = false;
+			if (pos < length && (text.charAt(pos) == '+' || text.charAt(pos) == '-')) {
+				pos++;
+			}
+			if (digits() == 0) {
+				throw error("Invalid number", start);
+			}
+		}
+		String number = text.substring(start, pos);
+		if (!integral) {
+			return Double.toString(Double.parseDouble(number));
+		}
+		if (digits <= 18) {
+			return Long.toString(Long.parseLong(number));
+		}
+		return new BigInteger(number).toString();
+	}
+
+	private int digits() {
+		int start = pos;
+		while (pos < length && text.charAt(pos) >= '0' && text.charAt(pos) <= '9') {
+			pos++;
+		}
+		return pos - start;
+	}
+
+	/** Read a quoted string. */
+	private String string() throws CaseSyntaxException {
+		int start = pos + 1;
+		int end = skipString();
+		if (!escaped) {
+			return text.substring(start, end - 1);
+		}
+		return unescape(start, end - 1);
+	}
+
+	/** Skip a quoted string starting at pos; returns the position after its closing quote. */
+	private int skipString() throws CaseSyntaxException {
+		int open = pos++;
+		escaped = false;
+		while (pos < length) {
+			char c = text.charAt(pos++);
+			if (c == '"') {
+				return pos;
+			}
+			if (c == '\\') {
+				escaped = true;
+				pos++;
+			}
+		}
+		throw error("Unclosed string", open);
+	}
+
+	private String unescape(int start, int end) throws CaseSyntaxException {
+		StringBuilder builder = new StringBuilder(end - start);
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			if (c != '\\') {
+				builder.append(c);
+				continue;
+			}
+			char next = text.charAt(++i);
+			switch (next) {
+			case '"':
+			case '\\':
+			case '/':
+				builder.append(next);
+				break;
+			case 'b':
+				builder.append('\b');
+				break;
+			case 'f':
+				builder.append('\f');
+				break;
+			case 'n':
+				builder.append('\n');
+				break;
+			case 'r':
+				builder.append('\r');
+				break;
+			case 't':
+				builder.append('\t');
+				break;
+			case 'u':
+				if (i + 4 >= end) {
+					throw error("Invalid unicode escape", i - 1);
+				}
+				try {
+					builder.append((char) Integer.parseInt(text.substring(i + 1, i + 5), 16));
+				} catch (NumberFormatException e) {
+					throw error("Invalid unicode escape", i - 1);
+				}
+				i += 4;
+				break;
+			default:
+				throw error("Invalid escape '\\" + next + "'", i - 1);
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Skip one JSON value, checking only that strings are closed. As elsewhere,
+	 * closing braces missing at the end of the cases are implied.
+	 */
+	private void skipJson() throws CaseSyntaxException {
+		if (pos == length) {
+			throw error("Expected a case value", pos);
+		}
+		char c = text.charAt(pos);
+		if (c != '{' && c != '[') {
+			scalar();
+			return;
+		}
+		int open = pos;
+		int depth = 0;
+		while (pos < length) {
+			c = text.charAt(pos);
+			if (c == '"') {
+				skipString();
+				continue;
+			}
+			pos++;
+			if (c == '{' || c == '[') {
+				depth++;
+			} else if (c == '}' || c == ']') {
+				if (--depth == 0) {
+					return;
+				}
+			}
+		}
+		if (text.charAt(open) != '{') {
+			throw error("Unclosed array value", open);
+		}
+	}
+
+	private boolean regionEquals(int start, int end, String test) {
+		return end - start == test.length() && text.regionMatches(start, test, 0, end - start);
+	}
+
+	private int trimEnd(int start, int end) {
+		while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+			end--;
+		}
+		return end;
+	}
+
+	private void skipWhitespace() {
+		while (pos < length && Character.isWhitespace(text.charAt(pos))) {
+			pos++;
+		}
+	}
+
+	private CaseSyntaxException error(String message, int offset) {
+		return new CaseSyntaxException(message + ".", text, offset);
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import com.dtolabs.rundeck.plugins.step.PluginStepContext;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of a matched switch case: either a single value for the step's
+ * variable or, for an object-valued case, one value for each of its fields.
+ */
+public class CaseResult {
+
+	private final String value;
+
+	private final String[] fieldNames;
+
+	private final String[] fieldValues;
+
+	/** The value, then each field value, compiled as templates on first use. */
+	private volatile Template[] templates;
+
+	private CaseResult(String value, String[] fieldNames, String[] fieldValues) {
+		this.value = value;
+		this.fieldNames = fieldNames;
+		this.fieldValues = fieldValues;
+	}
+
+	/**
+	 * Create a single-valued result.
+	 *
+	 * @param value The value.
+	 * @return The result.
+	 */
+	public static CaseResult of(String value) {
+		return new CaseResult(value, null, null);
+	}
+
+	/**
+	 * Create a result that sets one variable per field.
+	 *
+	 * @param fields Field names and values, in order.
+	 * @return The result.
+	 */
+	public static CaseResult ofFields(List<String[]> fields) {
+		String[] names = new String[fields.size()];
+		String[] values = new String[fields.size()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = fields.get(i)[0];
+			values[i] = fields.get(i)[1];
+		}
+		return new CaseResult("", names, values);
+	}
+
+	/**
+	 * The value for the step's variable; empty for object-valued cases.
+	 *
+	 * @return The value.
+	 */
+	public String getValue() {
+		return value;
+	}
+
+	public boolean hasFields() {
+		return fieldNames != null;
+	}
+
+	/**
+	 * Get the value of a field of an object-valued case.
+	 *
+	 * @param name The field name.
+	 * @return The field value, or null.
+	 */
+	public String getField(String name) {
+		if (fieldNames != null) {
+			for (int i = 0; i < fieldNames.length; i++) {
+				if (fieldNames[i].equals(name)) {
+					return fieldValues[i];
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Substitute %{group.key} placeholders in the value and field values.
+	 * Placeholders are parsed the first time this result is bound.
+	 *
+	 * @param data The data context, by group and key.
+	 * @return The bound result, or this result if it has no placeholders.
+	 */
+	public CaseResult bind(Map<String, Map<String, String>> data) {
+		Template[] compiled = templates;
+		if (compiled == null) {
+			compiled = compileTemplates();
+			templates = compiled;
+		}
+		if (compiled.length == 0) {
+			return this;
+		}
+		String boundValue = compiled[0].render(data);
+		if (fieldNames == null) {
+			return new CaseResult(boundValue, null, null);
+		}
+		String[] boundFields = new String[fieldValues.length];
+		for (int i = 0; i < boundFields.length; i++) {
+			boundFields[i] = compiled[i + 1].render(data);
+		}
+		return new CaseResult(boundValue, fieldNames, boundFields);
+	}
+
+	/** Compile the value and field values, or return none if nothing is a placeholder. */
+	private Template[] compileTemplates() {
+		int fields = fieldValues == null ? 0 : fieldValues.length;
+		Template[] compiled = new Template[fields + 1];
+		boolean placeholders = false;
+		for (int i = 0; i < compiled.length; i++) {
+			compiled[i] = Template.compile(i == 0 ? value : fieldValues[i - 1]);
+			placeholders |= compiled[i].hasPlaceholders();
+		}
+		return placeholders ? compiled : new Template[0];
+	}
+
+	/**
+	 * Write this result to the shared output context: the value as
+	 * ${group.name}, or each field as ${group.field}.
+	 *
+	 * @param ctx     Plugin step context.
+	 * @param log     Logger for the step.
+	 * @param elevate If specified, also create variables in global export
+	 *                context.
+	 * @param group   Variable group.
+	 * @param name    Variable name for single-valued results.
+	 */
+	public void addOutputs(PluginStepContext ctx, StepLogger log, boolean elevate, String group, String name) {
+		if (fieldNames == null) {
+			Outputs.add(ctx, log, elevate, group, name, value);
+			return;
+		}
+		for (int i = 0; i < fieldNames.length; i++) {
+			Outputs.add(ctx, log, elevate, group, fieldNames[i], fieldValues[i]);
+		}
+	}
+
+	void write(DataOutput out) throws IOException {
+		DiskCache.writeString(out, value);
+		out.writeInt(fieldNames == null ? -1 : fieldNames.length);
+		if (fieldNames != null) {
+			for (int i = 0; i < fieldNames.length; i++) {
+				DiskCache.writeString(out, fieldNames[i]);
+				DiskCache.writeString(out, fieldValues[i]);
+			}
+		}
+	}
+
+	static CaseResult read(DataInput in) throws IOException {
+		String value = DiskCache.readString(in);
+		int fields = in.readInt();
+		if (fields < 0) {
+			return of(value);
+		}
+		String[] names = new String[fields];
+		String[] values = new String[fields];
+		for (int i = 0; i < fields; i++) {
+			names[i] = DiskCache.readString(in);
+			values[i] = DiskCache.readString(in);
+		}
+		return new CaseResult(value, names, values);
+	}
+}
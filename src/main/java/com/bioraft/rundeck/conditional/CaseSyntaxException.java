@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Thrown when switch cases cannot be parsed, carrying the position of the
+ * error in the cases text.
+ */
+public class CaseSyntaxException extends JsonProcessingException {
+
+	private static final long serialVersionUID = 1L;
+
+	/** 0-based offset of the error in the cases text. */
+	private final int offset;
+
+	CaseSyntaxException(String message, CharSequence text, int offset) {
+		super(message, location(text, offset));
+		this.offset = offset;
+	}
+
+	@SuppressWarnings("deprecation")
+	private static JsonLocation location(CharSequence text, int offset) {
+		int line = 1;
+		int column = 1;
+		for (int i = 0; i < offset && i < text.length(); i++) {
+			if (text.charAt(i) == '\n') {
+				line++;
+				column = 1;
+			} else {
+				column++;
+			}
+		}
+		return new JsonLocation(null, offset, line, column);
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+}
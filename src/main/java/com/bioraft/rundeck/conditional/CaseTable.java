@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable, hash-indexed lookup table compiled from the cases of a switch
+ * step, matching case keys exactly.
+ *
+ * A case value that is an object sets one variable per field rather than a
+ * single variable; see CaseResult.
+ */
+public class CaseTable implements CaseMatcher {
+
+	private final Map<String, CaseResult> cases;
+
+	/**
+	 * Build a table from parsed entries. When a key is repeated, the last
+	 * entry wins, as in CaseParser.
+	 *
+	 * @param entries The parsed cases.
+	 */
+	public CaseTable(CaseEntries entries) {
+		Map<String, CaseResult> compiled = new HashMap<>();
+		for (int i = 0; i < entries.size(); i++) {
+			compiled.put(entries.getKey(i), entries.getResult(i));
+		}
+		this.cases = Collections.unmodifiableMap(compiled);
+	}
+
+	/**
+	 * Get the exact-match table for a cases string, compiling it on first use.
+	 *
+	 * @param cases The switch cases as members of a JSON object.
+	 * @return The compiled table, shared with other callers.
+	 * @throws JsonProcessingException If the cases cannot be parsed.
+	 */
+	public static CaseTable forCases(String cases) throws JsonProcessingException {
+		return (CaseTable) MatchMode.EXACT.forCases(cases);
+	}
+
+	/**
+	 * Parse a cases string into a new table without consulting the cache.
+	 *
+	 * @param cases The switch cases as members of a JSON object.
+	 * @return The compiled table.
+	 * @throws JsonProcessingException If the cases cannot be parsed.
+	 */
+	public static CaseTable compile(String cases) throws JsonProcessingException {
+		return new CaseTable(CaseEntries.parse(cases));
+	}
+
+	@Override
+	public CaseResult find(String test) {
+		return cases.get(test);
+	}
+
+	public int size() {
+		return cases.size();
+	}
+
+	static void clearCache() {
+		MatchMode.EXACT.clearCache();
+	}
+}
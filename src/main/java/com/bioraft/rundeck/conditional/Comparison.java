@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * An operator bound to its comparison value, ready to test values against.
+ *
+ * Numeric comparison values are parsed, and regular expressions compiled,
+ * once, when the comparison is compiled. An invalid regular expression never
+ * matches. Compiled comparisons are cached per operator, so the constant
+ * comparison value of a step is parsed only once however often the step runs.
+ */
+public class Comparison {
+
+	/** Maximum number of comparisons cached for each operator. */
+	public static final int CACHE_SIZE = 1024;
+
+	private static final Map<Operator, LruCache<String, Comparison>> CACHE = new EnumMap<>(Operator.class);
+
+	static {
+		for (Operator operator : Operator.values()) {
+			CACHE.put(operator, new LruCache<>("comparison." + operator.getLabel(), CACHE_SIZE));
+		}
+	}
+
+	private final Operator operator;
+
+	private final String comparisonValue;
+
+	/** The comparison value as a number, or NaN if it is not numeric. */
+	private final double comparisonNumber;
+
+	/** The comparison value as a regular expression, or null if not matching or invalid. */
+	private final Pattern pattern;
+
+	private Comparison(Operator operator, String comparisonValue) {
+		this.operator = operator;
+		this.comparisonValue = comparisonValue;
+		this.comparisonNumber = operator.isNumeric() ? Numbers.parse(comparisonValue) : Double.NaN;
+		this.pattern = operator == Operator.STRING_MATCH ? compilePattern(comparisonValue) : null;
+	}
+
+	private static Pattern compilePattern(String regex) {
+		try {
+			return Patterns.compile(regex);
+		} catch (PatternSyntaxException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Get the compiled comparison for an operator and comparison value.
+	 *
+	 * @param operator        The comparison operator.
+	 * @param comparisonValue The value to test against.
+	 * @return The compiled comparison.
+	 */
+	public static Comparison of(Operator operator, String comparisonValue) {
+		LruCache<String, Comparison> cache = CACHE.get(operator);
+		Comparison comparison = cache.get(comparisonValue);
+		if (comparison == null) {
+			comparison = new Comparison(operator, comparisonValue);
+			cache.put(comparisonValue, comparison);
+		}
+		return comparison;
+	}
+
+	public Operator getOperator() {
+		return operator;
+	}
+
+	public String getComparisonValue() {
+		return comparisonValue;
+	}
+
+	/**
+	 * Test a value against this comparison.
+	 *
+	 * @param testValue The value to test.
+	 * @return True if the comparison holds.
+	 */
+	public boolean test(String testValue) {
+		if (operator == Operator.STRING_MATCH) {
+			return pattern != null && pattern.matcher(testValue).find();
+		}
+		if (!operator.isNumeric()) {
+			return operator.test(testValue, comparisonValue);
+		}
+		if (Double.isNaN(comparisonNumber)) {
+			return false;
+		}
+		double testNumber = Numbers.parse(testValue);
+		return !Double.isNaN(testNumber) && operator.compare(testNumber, comparisonNumber);
+	}
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.lang.management.ManagementFactory;
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters, latency histograms and cache statistics for conditional steps,
+ * exposed through JMX.
+ *
+ * Recording is lock-free: every counter is a LongAdder, and a timer is looked
+ * up once per operator or match mode rather than per evaluation.
+ */
+public class ConditionalMetrics implements ConditionalMetricsMXBean {
+
+	public static final String OBJECT_NAME = "com.bioraft.rundeck.conditional:type=ConditionalMetrics";
+
+	/** Outcome of one evaluation. */
+	public enum Outcome {
+		MATCHED, UNMATCHED, DEFAULTED
+	}
+
+	private static final ConditionalMetrics INSTANCE = new ConditionalMetrics();
+
+	private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+	private final CopyOnWriteArrayList<Map.Entry<String, CacheStats>> caches = new CopyOnWriteArrayList<>();
+
+	static {
+		register();
+	}
+
+	private ConditionalMetrics() {
+	}
+
+	public static ConditionalMetrics getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Register the MBean, replacing one left by an earlier load of the plugin.
+	 */
+	private static void register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			try {
+				server.registerMBean(INSTANCE, name);
+			} catch (InstanceAlreadyExistsException e) {
+				server.unregisterMBean(name);
+				server.registerMBean(INSTANCE, name);
+			}
+		} catch (JMException | SecurityException e) {
+			// Metrics are still recorded; they are just not visible over JMX.
+		}
+	}
+
+	/**
+	 * Get the timer for an evaluation key, creating it on first use.
+	 *
+	 * @param key The evaluation key, e.g. "switch.exact".
+	 * @return The timer.
+	 */
+	public static Timer timer(String key) {
+		return INSTANCE.timers.computeIfAbsent(key, k -> new Timer());
+	}
+
+	/**
+	 * Report statistics of a cache under a name; caches of the same name are
+	 * combined.
+	 *
+	 * @param name  The cache name.
+	 * @param cache The cache.
+	 */
+	public static void registerCache(String name, CacheStats cache) {
+		INSTANCE.caches.add(new AbstractMap.SimpleImmutableEntry<>(name, cache));
+	}
+
+	@Override
+	public Map<String, Long> getMatched() {
+		return timerValues(timer -> timer.matched.sum());
+	}
+
+	@Override
+	public Map<String, Long> getUnmatched() {
+		return timerValues(timer -> timer.unmatched.sum());
+	}
+
+	@Override
+	public Map<String, Long> getDefaulted() {
+		return timerValues(timer -> timer.defaulted.sum());
+	}
+
+	@Override
+	public Map<String, Long> getParseErrors() {
+		return timerValues(timer -> timer.parseErrors.sum());
+	}
+
+	@Override
+	public Map<String, long[]> getLatencyHistograms() {
+		Map<String, long[]> values = new TreeMap<>();
+		timers.forEach((key, timer) -> values.put(key, timer.histogram()));
+		return values;
+	}
+
+	@Override
+	public Map<String, Long> getLatencyP50Nanos() {
+		return timerValues(timer -> timer.percentile(0.5));
+	}
+
+	@Override
+	public Map<String, Long> getLatencyP99Nanos() {
+		return timerValues(timer -> timer.percentile(0.99));
+	}
+
+	@Override
+	public Map<String, Long> getCacheHits() {
+		return cacheValues(CacheStats::getHits);
+	}
+
+	@Override
+	public Map<String, Long> getCacheMisses() {
+		return cacheValues(CacheStats::getMisses);
+	}
+
+	@Override
+	public Map<String, Long> getCacheEvictions() {
+		return cacheValues(CacheStats::getEvictions);
+	}
+
+	@Override
+	public Map<String, Long> getCacheSizes() {
+		return cacheValues(CacheStats::size);
+	}
+
+	@Override
+	public void reset() {
+		timers.values().forEach(Timer::reset);
+	}
+
+	private Map<String, Long> timerValues(ToLongFunction<Timer> value) {
+		Map<String, Long> values = new TreeMap<>();
+		timers.forEach((key, timer) -> values.put(key, value.applyAsLong(timer)));
+		return values;
+	}
+
+	private Map<String, Long> cacheValues(ToLongFunction<CacheStats> value) {
+		Map<String, Long> values = new TreeMap<>();
+		for (Map.Entry<String, CacheStats> cache : caches) {
+			values.merge(cache.getKey(), value.applyAsLong(cache.getValue()), Long::sum);
+		}
+		return values;
+	}
+
+	/**
+	 * Outcome counters and a latency histogram with power-of-two buckets for
+	 * one evaluation key.
+	 */
+	public static final class Timer {
+
+		private static final int BUCKETS = 64;
+
+		private final LongAdder matched = new LongAdder();
+
+		private final LongAdder unmatched = new LongAdder();
+
+		private final LongAdder defaulted = new LongAdder();
+
+		private final LongAdder parseErrors = new LongAdder();
+
+		private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+		private Timer() {
+			for (int i = 0; i < BUCKETS; i++) {
+				buckets[i] = new LongAdder();
+			}
+		}
+
+		/**
+		 * Record an evaluation.
+		 *
+		 * @param outcome   What the evaluation did.
+		 * @param startNanos System.nanoTime() when the evaluation started.
+		 */
+		public void record(Outcome outcome, long startNanos) {
+			switch (outcome) {
+			case MATCHED:
+				matched.increment();
+				break;
+			case DEFAULTED:
+				defaulted.increment();
+				break;
+			default:
+				unmatched.increment();
+			}
+			long elapsed = Math.max(1, System.nanoTime() - startNanos);
+			buckets[63 - Long.numberOfLeadingZeros(elapsed)].increment();
+		}
+
+		public void parseError() {
+			parseErrors.increment();
+		}
+
+		public long getMatched() {
+			return matched.sum();
+		}
+
+		public long getUnmatched() {
+			return unmatched.sum();
+		}
+
+		public long getDefaulted() {
+			return defaulted.sum();
+		}
+
+		public long getParseErrors() {
+			return parseErrors.sum();
+		}
+
+		long[] histogram() {
+			long[] counts = new long[BUCKETS];
+			for (int i = 0; i < BUCKETS; i++) {
+				counts[i] = buckets[i].sum();
+			}
+			return counts;
+		}
+
+		/** Upper bound of the bucket holding the given quantile, or 0 if empty. */
+		long percentile(double quantile) {
+			long[] counts = histogram();
+			long total = 0;
+			for (long count : counts) {
+				total += count;
+			}
+			long rank = (long) Math.ceil(quantile * total);
+			long seen = 0;
+			for (int i = 0; i < BUCKETS && total > 0; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return i < 62 ? 2L << i : Long.MAX_VALUE;
+				}
+			}
+			return 0;
+		}
+
+		void reset() {
+			matched.reset();
+			unmatched.reset();
+			defaulted.reset();
+			parseErrors.reset();
+			for (LongAdder bucket : buckets) {
+				bucket.reset();
+			}
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.util.Map;
+
+/**
+ * Management interface of the conditional step metrics, registered as
+ * com.bioraft.rundeck.conditional:type=ConditionalMetrics.
+ *
+ * Evaluations are keyed as "ifElse.&lt;operator&gt;", "switch.&lt;mode&gt;" or
+ * "expression"; caches by name, with caches of the same name combined.
+ */
+public interface ConditionalMetricsMXBean {
+
+	/** @return Evaluations that matched, by evaluation key. */
+	Map<String, Long> getMatched();
+
+	/** @return Evaluations that matched nothing and set no value, by evaluation key. */
+	Map<String, Long> getUnmatched();
+
+	/** @return Evaluations that matched nothing and used the default, by evaluation key. */
+	Map<String, Long> getDefaulted();
+
+	/** @return Evaluations that failed to parse their configuration, by evaluation key. */
+	Map<String, Long> getParseErrors();
+
+	/**
+	 * @return Latency histograms by evaluation key, where element i counts
+	 *         evaluations that took from 2^i up to 2^(i+1) nanoseconds.
+	 */
+	Map<String, long[]> getLatencyHistograms();
+
+	/** @return Median latency in nanoseconds, as a bucket upper bound, by evaluation key. */
+	Map<String, Long> getLatencyP50Nanos();
+
+	/** @return 99th percentile latency in nanoseconds, as a bucket upper bound, by evaluation key. */
+	Map<String, Long> getLatencyP99Nanos();
+
+	/** @return Cache hits by cache name. */
+	Map<String, Long> getCacheHits();
+
+	/** @return Cache misses by cache name. */
+	Map<String, Long> getCacheMisses();
+
+	/** @return Cache evictions by cache name. */
+	Map<String, Long> getCacheEvictions();
+
+	/** @return Cached entries by cache name. */
+	Map<String, Long> getCacheSizes();
+
+	/** Reset evaluation counters and histograms; cache statistics are kept. */
+	void reset();
+}
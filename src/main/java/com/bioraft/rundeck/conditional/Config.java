@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.util.Map;
+
+/**
+ * Reads step configuration values.
+ *
+ * Plugin instances may be shared by threads dispatching a node step in
+ * parallel, so values resolved from the configuration are kept in locals and
+ * never written back to plugin fields.
+ */
+public class Config {
+
+	private Config() {
+	}
+
+	/**
+	 * Read a boolean option, which Rundeck may pass as a Boolean or a String.
+	 *
+	 * @param cfg          Configuration map.
+	 * @param key          The option name.
+	 * @param defaultValue The value if the option is not configured.
+	 * @return The option value.
+	 */
+	public static boolean flag(Map<String, Object> cfg, String key, boolean defaultValue) {
+		Object value = cfg.get(key);
+		if (value == null) {
+			return defaultValue;
+		}
+		if (value instanceof Boolean) {
+			return (Boolean) value;
+		}
+		return value.toString().equals("true");
+	}
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Optional on-disk cache of parsed step configuration, so that the first
+ * evaluations after a restart load large case and rule tables instead of
+ * parsing them again.
+ *
+ * The cache is enabled by naming a directory in the
+ * rundeck.conditional.cacheDir system property. Entries are kept in its
+ * conditional-cache subdirectory, created readable only by the Rundeck user;
+ * if that directory exists but is not owned by the Rundeck user or is open to
+ * others, the cache is neither read nor written. Each entry is a file named by
+ * the length and String hash of the source text, holding a magic number, a
+ * format version, the SHA-256 hash of the text, the encoded value and a CRC32
+ * of everything before it. Entries are read only when the in-memory caches
+ * miss, and the text is only hashed with SHA-256 when an entry exists. An
+ * entry that is truncated, corrupt, of another format version or for other
+ * text is deleted and rebuilt from the source text.
+ *
+ * Text seen only once, such as node step configuration that Rundeck expanded
+ * differently for each node, is never written: an entry is written the second
+ * time its text is compiled. The directory is kept within
+ * rundeck.conditional.cacheMaxFiles entries and
+ * rundeck.conditional.cacheMaxBytes bytes by deleting the least recently used
+ * entries, and entries are marked as used when they are loaded.
+ */
+public class DiskCache {
+
+	/** System property naming the cache directory; the cache is off if unset. */
+	public static final String DIRECTORY_PROPERTY = "rundeck.conditional.cacheDir";
+
+	/** System property limiting the number of entries. */
+	public static final String MAX_FILES_PROPERTY = "rundeck.conditional.cacheMaxFiles";
+
+	/** System property limiting the total size of entries, in bytes. */
+	public static final String MAX_BYTES_PROPERTY = "rundeck.conditional.cacheMaxBytes";
+
+	/** Default maximum number of entries. */
+	public static final int DEFAULT_MAX_FILES = 1000;
+
+	/** Default maximum total size of entries, in bytes. */
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+	/** Name of the directory, created for the Rundeck user only, holding entries. */
+	static final String CACHE_SUBDIR = "conditional-cache";
+
+	/** Number of texts remembered as seen once, to write them when seen again. */
+	static final int SEEN_SIZE = 1024;
+
+	/** Format version; entries written by another version are rebuilt. */
+	public static final int VERSION = 2;
+
+	private static final int MAGIC = 0x52444343;
+
+	private static final LongAdder LOADED = new LongAdder();
+
+	private static final LongAdder COMPILED = new LongAdder();
+
+	private static final LongAdder REBUILT = new LongAdder();
+
+	private static final LongAdder PRUNED = new LongAdder();
+
+	/** Texts compiled once and not written, by file name. */
+	private static final LruCache<String, Boolean> SEEN = new LruCache<>(SEEN_SIZE);
+
+	static {
+		ConditionalMetrics.registerCache("disk", new CacheStats() {
+			@Override
+			public long getHits() {
+				return LOADED.sum();
+			}
+
+			@Override
+			public long getMisses() {
+				return COMPILED.sum();
+			}
+
+			@Override
+			public long getEvictions() {
+				return REBUILT.sum() + PRUNED.sum();
+			}
+
+			@Override
+			public int size() {
+				return countEntries();
+			}
+		});
+	}
+
+	private DiskCache() {
+	}
+
+	/** Encodes values stored in the cache. */
+	public interface Codec<T> {
+		void write(T value, DataOutput out) throws IOException;
+
+		T read(DataInput in) throws IOException;
+	}
+
+	/**
+	 * Get a value compiled from source text, loading it from the cache
+	 * directory if present and valid, and storing it there otherwise.
+	 *
+	 * @param kind     Prefix for entry files, e.g. "cases".
+	 * @param source   The source text.
+	 * @param codec    Encodes and decodes the value.
+	 * @param compiler Compiles the text when no valid entry exists.
+	 * @return The value.
+	 * @throws E If the text cannot be compiled.
+	 */
+	public static <T, E extends Exception> T get(String kind, String source, Codec<T> codec,
+			ExecutionScope.Compiler<T, E> compiler) throws E {
+		String directory = System.getProperty(DIRECTORY_PROPERTY);
+		if (directory == null || directory.length() == 0) {
+			return compiler.compile(source);
+		}
+		Path dir = Paths.get(directory, CACHE_SUBDIR);
+		try {
+			PrivateDirectory.secure(dir);
+		} catch (IOException e) {
+			// Entries others could have written are not trusted.
+			COMPILED.increment();
+			return compiler.compile(source);
+		}
+		String name = kind + "-" + source.length() + "-" + Integer.toHexString(source.hashCode()) + ".bin";
+		Path file = dir.resolve(name);
+		byte[] hash = null;
+		if (Files.isRegularFile(file)) {
+			hash = sha256(source);
+			T value = read(file, hash, codec);
+			if (value != null) {
+				LOADED.increment();
+				touch(file);
+				return value;
+			}
+		}
+		T value = compiler.compile(source);
+		COMPILED.increment();
+		if (SEEN.get(name) == null) {
+			SEEN.put(name, Boolean.TRUE);
+		} else {
+			write(file, hash == null ? sha256(source) : hash, value, codec);
+			prune(dir);
+		}
+		return value;
+	}
+
+	/**
+	 * Get a value from an in-memory cache, falling back to the cache directory
+	 * or the compiler and keeping the result in memory.
+	 *
+	 * @param memory   The in-memory cache, keyed by source text.
+	 * @param kind     Prefix for entry files, e.g. "cases".
+	 * @param source   The source text.
+	 * @param codec    Encodes and decodes the value.
+	 * @param compiler Compiles the text when no valid entry exists.
+	 * @return The value.
+	 * @throws E If the text cannot be compiled.
+	 */
+	static <T, E extends Exception> T get(LruCache<String, T> memory, String kind, String source, Codec<T> codec,
+			ExecutionScope.Compiler<T, E> compiler) throws E {
+		T value = memory.get(source);
+		if (value == null) {
+			value = get(kind, source, codec, compiler);
+			memory.put(source, value);
+		}
+		return value;
+	}
+
+	/** Forget which texts have been seen once. */
+	static void clearSeen() {
+		SEEN.clear();
+	}
+
+	/** Mark an entry as recently used. */
+	private static void touch(Path file) {
+		try {
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// Only the order of pruning is affected.
+		}
+	}
+
+	/**
+	 * Delete the least recently used entries until the directory is within
+	 * its limits.
+	 *
+	 * @param directory The cache directory.
+	 */
+	static void prune(Path directory) {
+		long maxFiles = Long.getLong(MAX_FILES_PROPERTY, DEFAULT_MAX_FILES);
+		long maxBytes = Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES);
+		List<Path> files = new ArrayList<>();
+		Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+		long bytes = 0;
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*.bin")) {
+			for (Path file : entries) {
+				BasicFileAttributes fileAttributes = Files.readAttributes(file, BasicFileAttributes.class);
+				files.add(file);
+				attributes.put(file, fileAttributes);
+				bytes += fileAttributes.size();
+			}
+		} catch (IOException e) {
+			return;
+		}
+		files.sort(Comparator.comparing(file -> attributes.get(file).lastModifiedTime()));
+		int count = files.size();
+		for (Path file : files) {
+			if (count <= maxFiles && bytes <= maxBytes) {
+				break;
+			}
+			try {
+				Files.deleteIfExists(file);
+				count--;
+				bytes -= attributes.get(file).size();
+				PRUNED.increment();
+			} catch (IOException e) {
+				// Retried when the next entry is written.
+			}
+		}
+	}
+
+	private static <T> T read(Path file, byte[] hash, Codec<T> codec) {
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		try {
+			byte[] bytes = Files.readAllBytes(file);
+			if (bytes.length < 4) {
+				throw new IOException("Truncated cache entry");
+			}
+			CRC32 crc = new CRC32();
+			crc.update(bytes, 0, bytes.length - 4);
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+			in.skipBytes(bytes.length - 4);
+			if ((int) crc.getValue() != in.readInt()) {
+				throw new IOException("Cache entry checksum mismatch");
+			}
+			in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4));
+			byte[] storedHash = new byte[hash.length];
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Cache entry of another format");
+			}
+			in.readFully(storedHash);
+			if (!Arrays.equals(hash, storedHash)) {
+				throw new IOException("Cache entry for other text");
+			}
+			T value = codec.read(in);
+			if (in.available() != 0) {
+				throw new IOException("Trailing data in cache entry");
+			}
+			return value;
+		} catch (IOException | RuntimeException e) {
+			REBUILT.increment();
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException ignored) {
+				// It is overwritten when the entry is rebuilt.
+			}
+			return null;
+		}
+	}
+
+	private static <T> void write(Path file, byte[] hash, T value, Codec<T> codec) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.write(hash);
+			codec.write(value, out);
+			CRC32 crc = new CRC32();
+			crc.update(bytes.toByteArray());
+			out.writeInt((int) crc.getValue());
+			out.flush();
+
+			Path temp = Files.createTempFile(file.getParent(), "entry", ".tmp");
+			try {
+				Files.write(temp, bytes.toByteArray());
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		} catch (IOException e) {
+			// The cache is an optimization; the compiled value is still used.
+		}
+	}
+
+	private static int countEntries() {
+		String directory = System.getProperty(DIRECTORY_PROPERTY);
+		if (directory == null || directory.length() == 0 || !Files.isDirectory(Paths.get(directory, CACHE_SUBDIR))) {
+			return 0;
+		}
+		int count = 0;
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(Paths.get(directory, CACHE_SUBDIR), "*.bin")) {
+			for (Path ignored : entries) {
+				count++;
+			}
+		} catch (IOException e) {
+			return 0;
+		}
+		return count;
+	}
+
+	static byte[] sha256(String text) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Write a string, or null, as a length-prefixed UTF-8 byte sequence.
+	 *
+	 * @param out    The output.
+	 * @param string The string.
+	 * @throws IOException If it cannot be written.
+	 */
+	public static void writeString(DataOutput out, String string) throws IOException {
+		if (string == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Read a string written by writeString.
+	 *
+	 * @param in The input.
+	 * @return The string, or null.
+	 * @throws IOException If it cannot be read.
+	 */
+	public static String readString(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import com.dtolabs.rundeck.plugins.step.PluginStepContext;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compiled step state shared by all nodes of one step of one execution.
+ *
+ * A node step runs once per node with its own configuration map, so even
+ * when the configuration is the same for every node the cases or comparison
+ * value arrive as new strings, and finding them in a content-keyed cache
+ * means hashing them again for each node. State kept here is keyed instead by
+ * the execution id and step context, and reused as long as its source text is
+ * unchanged, so later nodes only compare it with the text they were given.
+ *
+ * Rundeck does not notify plugins when an execution ends, so state is
+ * released once it has been idle for IDLE_TIMEOUT_MILLIS, and both the number
+ * of entries and the total length of their source text are bounded, the least
+ * recently used entries being released first.
+ */
+public class ExecutionScope {
+
+	/** State not used for this long is released. */
+	public static final long IDLE_TIMEOUT_MILLIS = 10 * 60 * 1000L;
+
+	/** Maximum number of shared entries, across all executions. */
+	public static final int MAX_ENTRIES = 1024;
+
+	/**
+	 * Maximum total length of the source text of shared entries; text longer
+	 * than this on its own is compiled but not shared.
+	 */
+	public static final long MAX_SOURCE_CHARS = 4L * 1024 * 1024;
+
+	private static final Map<Key, Entry> ENTRIES = new ConcurrentHashMap<>();
+
+	/** Reusable lookup key, so that finding shared state allocates nothing. */
+	private static final ThreadLocal<Key> PROBE = ThreadLocal.withInitial(Key::new);
+
+	private static final LongAdder HITS = new LongAdder();
+
+	private static final LongAdder MISSES = new LongAdder();
+
+	private static final LongAdder EVICTIONS = new LongAdder();
+
+	private static final LongAdder SOURCE_CHARS = new LongAdder();
+
+	static {
+		ConditionalMetrics.registerCache("executionScope", new CacheStats() {
+			@Override
+			public long getHits() {
+				return HITS.sum();
+			}
+
+			@Override
+			public long getMisses() {
+				return MISSES.sum();
+			}
+
+			@Override
+			public long getEvictions() {
+				return EVICTIONS.sum();
+			}
+
+			@Override
+			public int size() {
+				return ENTRIES.size();
+			}
+		});
+	}
+
+	private ExecutionScope() {
+	}
+
+	/** Compiles the source text of shared state. */
+	@FunctionalInterface
+	public interface Compiler<T, E extends Exception> {
+		T compile(String source) throws E;
+	}
+
+	/**
+	 * Get state compiled from source text, shared with other nodes of the same
+	 * execution step. Outside an execution the state is compiled directly.
+	 *
+	 * @param ctx      Plugin step context.
+	 * @param kind     Distinguishes different state kept for one step.
+	 * @param source   The text the state is compiled from.
+	 * @param compiler Compiles the text when it is not already shared.
+	 * @return The compiled state.
+	 * @throws E If the text cannot be compiled.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T, E extends Exception> T shared(PluginStepContext ctx, String kind, String source,
+			Compiler<T, E> compiler) throws E {
+		String executionId = executionId(ctx);
+		if (executionId == null) {
+			return compiler.compile(source);
+		}
+		Key probe = PROBE.get().set(executionId, ctx.getStepContext(), kind);
+		Entry entry = ENTRIES.get(probe);
+		long now = System.currentTimeMillis();
+		if (entry != null && entry.matches(source)) {
+			probe.set(null, null, null);
+			entry.used = now;
+			HITS.increment();
+			return (T) entry.value;
+		}
+		Key key = probe.copy();
+		probe.set(null, null, null);
+		MISSES.increment();
+		T value = compiler.compile(source);
+		if (source.length() > MAX_SOURCE_CHARS) {
+			return value;
+		}
+		Entry added = new Entry(source, value, now);
+		Entry previous = ENTRIES.put(key, added);
+		SOURCE_CHARS.add(source.length());
+		if (previous != null) {
+			SOURCE_CHARS.add(-previous.source.length());
+		}
+		if (previous == null || SOURCE_CHARS.sum() > MAX_SOURCE_CHARS) {
+			release(now, key);
+		}
+		return value;
+	}
+
+	private static String executionId(PluginStepContext ctx) {
+		Map<String, Map<String, String>> data = ctx.getDataContext();
+		if (data == null) {
+			return null;
+		}
+		Map<String, String> job = data.get("job");
+		return job == null ? null : job.get("execid");
+	}
+
+	/**
+	 * Release idle entries and then, while over either bound, the least
+	 * recently used ones other than the entry just added.
+	 */
+	private static void release(long now, Key added) {
+		List<Map.Entry<Key, Entry>> live = new ArrayList<>();
+		for (Map.Entry<Key, Entry> entry : ENTRIES.entrySet()) {
+			if (now - entry.getValue().used > IDLE_TIMEOUT_MILLIS) {
+				remove(entry.getKey(), entry.getValue());
+			} else if (entry.getKey() != added) {
+				live.add(entry);
+			}
+		}
+		if (ENTRIES.size() <= MAX_ENTRIES && SOURCE_CHARS.sum() <= MAX_SOURCE_CHARS) {
+			return;
+		}
+		live.sort(Comparator.comparingLong(entry -> entry.getValue().used));
+		for (Map.Entry<Key, Entry> entry : live) {
+			if (ENTRIES.size() <= MAX_ENTRIES && SOURCE_CHARS.sum() <= MAX_SOURCE_CHARS) {
+				break;
+			}
+			remove(entry.getKey(), entry.getValue());
+		}
+	}
+
+	private static void remove(Key key, Entry entry) {
+		if (ENTRIES.remove(key, entry)) {
+			SOURCE_CHARS.add(-entry.source.length());
+			EVICTIONS.increment();
+		}
+	}
+
+	/** Total length of the source text of shared entries. */
+	static long sourceChars() {
+		return SOURCE_CHARS.sum();
+	}
+
+	static int size() {
+		return ENTRIES.size();
+	}
+
+	static void clear() {
+		for (Map.Entry<Key, Entry> entry : ENTRIES.entrySet()) {
+			if (ENTRIES.remove(entry.getKey(), entry.getValue())) {
+				SOURCE_CHARS.add(-entry.getValue().source.length());
+			}
+		}
+	}
+
+	private static final class Key {
+
+		private String executionId;
+
+		private List<Integer> stepContext;
+
+		private String kind;
+
+		private int hash;
+
+		Key set(String executionId, List<Integer> stepContext, String kind) {
+			this.executionId = executionId;
+			this.stepContext = stepContext;
+			this.kind = kind;
+			this.hash = executionId == null ? 0
+					: (executionId.hashCode() * 31 + stepHash(stepContext)) * 31 + kind.hashCode();
+			return this;
+		}
+
+		/** List hash without an iterator, which is not always optimized away. */
+		private static int stepHash(List<Integer> stepContext) {
+			if (stepContext == null) {
+				return 0;
+			}
+			int hash = 1;
+			for (int i = 0; i < stepContext.size(); i++) {
+				hash = 31 * hash + Objects.hashCode(stepContext.get(i));
+			}
+			return hash;
+		}
+
+		private static boolean sameSteps(List<Integer> a, List<Integer> b) {
+			if (a == b) {
+				return true;
+			}
+			if (a == null || b == null || a.size() != b.size()) {
+				return false;
+			}
+			for (int i = 0; i < a.size(); i++) {
+				if (!Objects.equals(a.get(i), b.get(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		Key copy() {
+			return new Key().set(executionId, stepContext, kind);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			return executionId.equals(key.executionId) && kind.equals(key.kind)
+					&& sameSteps(stepContext, key.stepContext);
+		}
+	}
+
+	private static final class Entry {
+
+		final String source;
+
+		final Object value;
+
+		volatile long used;
+
+		Entry(String source, Object value, long used) {
+			this.source = source;
+			this.value = value;
+			this.used = used;
+		}
+
+		/** Check for the same text. */
+		boolean matches(String other) {
+			return source == other || source.equals(other);
+		}
+	}
+}
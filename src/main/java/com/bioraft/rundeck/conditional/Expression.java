@@ -0,0 +1,343 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import com.dtolabs.rundeck.core.execution.workflow.steps.FailureReason;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compound boolean condition compiled into a tree of comparisons.
+ *
+ * Comparisons use the IfElse operators, e.g. {@code "prod" eq "prod"} or
+ * {@code 16 >= 8}, and may be combined with {@code &&}, {@code ||}, {@code !}
+ * and parentheses; {@code &&} binds tighter than {@code ||}. Operands are
+ * quoted with single or double quotes, or are bare words. A bare operand
+ * with no operator is true if it is "true", ignoring case. A comparison value
+ * missing after an operator, or a test value missing before a symbolic
+ * operator such as "=", is empty, as when an unset option expands to nothing;
+ * before a word operator such as "eq" an empty test value must be quoted.
+ *
+ * Expressions are parsed once and cached by their text; evaluation stops as
+ * soon as the result is known.
+ */
+public abstract class Expression {
+
+	/** Maximum number of parsed expressions kept in memory. */
+	public static final int CACHE_SIZE = 1024;
+
+	private static final LruCache<String, Expression> CACHE = new LruCache<>("expression", CACHE_SIZE);
+
+	/**
+	 * Get the compiled form of an expression, parsing it on first use.
+	 *
+	 * @param text The expression.
+	 * @return The compiled expression.
+	 * @throws ParseException If the expression is invalid.
+	 */
+	public static Expression forText(String text) throws ParseException {
+		Expression expression = CACHE.get(text);
+		if (expression == null) {
+			expression = parse(text);
+			CACHE.put(text, expression);
+		}
+		return expression;
+	}
+
+	/**
+	 * Parse an expression without consulting the cache.
+	 *
+	 * @param text The expression.
+	 * @return The compiled expression.
+	 * @throws ParseException If the expression is invalid.
+	 */
+	public static Expression parse(String text) throws ParseException {
+		return new Parser(text).parse();
+	}
+
+	/**
+	 * Evaluate the expression.
+	 *
+	 * @return The result.
+	 */
+	public abstract boolean evaluate();
+
+	static class Or extends Expression {
+		private final Expression[] terms;
+
+		Or(List<Expression> terms) {
+			this.terms = terms.toArray(new Expression[0]);
+		}
+
+		@Override
+		public boolean evaluate() {
+			for (Expression term : terms) {
+				if (term.evaluate()) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	static class And extends Expression {
+		private final Expression[] terms;
+
+		And(List<Expression> terms) {
+			this.terms = terms.toArray(new Expression[0]);
+		}
+
+		@Override
+		public boolean evaluate() {
+			for (Expression term : terms) {
+				if (!term.evaluate()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	static class Not extends Expression {
+		private final Expression term;
+
+		Not(Expression term) {
+			this.term = term;
+		}
+
+		@Override
+		public boolean evaluate() {
+			return !term.evaluate();
+		}
+	}
+
+	static class Compare extends Expression {
+		private final String testValue;
+		private final Comparison comparison;
+
+		Compare(String testValue, Comparison comparison) {
+			this.testValue = testValue;
+			this.comparison = comparison;
+		}
+
+		@Override
+		public boolean evaluate() {
+			return comparison.test(testValue);
+		}
+	}
+
+	static class Constant extends Expression {
+		private final boolean value;
+
+		Constant(boolean value) {
+			this.value = value;
+		}
+
+		@Override
+		public boolean evaluate() {
+			return value;
+		}
+	}
+
+	/**
+	 * Recursive descent parser over the expression text.
+	 */
+	private static class Parser {
+
+		private final String text;
+		private int position = 0;
+
+		Parser(String text) {
+			this.text = text == null ? "" : text;
+		}
+
+		Expression parse() throws ParseException {
+			Expression expression = parseOr();
+			skipWhitespace();
+			if (position < text.length()) {
+				throw error("Unexpected '" + text.charAt(position) + "'");
+			}
+			return expression;
+		}
+
+		private Expression parseOr() throws ParseException {
+			List<Expression> terms = new ArrayList<>();
+			terms.add(parseAnd());
+			while (accept("||")) {
+				terms.add(parseAnd());
+			}
+			return terms.size() == 1 ? terms.get(0) : new Or(terms);
+		}
+
+		private Expression parseAnd() throws ParseException {
+			List<Expression> terms = new ArrayList<>();
+			terms.add(parseUnary());
+			while (accept("&&")) {
+				terms.add(parseUnary());
+			}
+			return terms.size() == 1 ? terms.get(0) : new And(terms);
+		}
+
+		private Expression parseUnary() throws ParseException {
+			skipWhitespace();
+			if (text.startsWith("!", position) && !text.startsWith("!=", position)) {
+				position++;
+				return new Not(parseUnary());
+			}
+			if (accept("(")) {
+				Expression expression = parseOr();
+				if (!accept(")")) {
+					throw error("Expected ')'");
+				}
+				return expression;
+			}
+			return parseComparison();
+		}
+
+		private Expression parseComparison() throws ParseException {
+			int start = position;
+			Operator operator = parseSymbol();
+			if (operator != null && !atOperandEnd()) {
+				// A symbolic operator where the test value belongs: the test value is empty.
+				return new Compare("", Comparison.of(operator, parseOperand(false)));
+			}
+			position = start;
+			String testValue = parseOperand(false);
+			start = position;
+			operator = parseOperator();
+			if (operator == null) {
+				position = start;
+				return new Constant("true".equalsIgnoreCase(testValue));
+			}
+			return new Compare(testValue, Comparison.of(operator, parseOperand(true)));
+		}
+
+		/**
+		 * Read an operator: a symbol such as "&gt;=", or one or two words such
+		 * as "eq" or "begins with".
+		 */
+		private Operator parseOperator() {
+			skipWhitespace();
+			int start = position;
+			Operator symbol = parseSymbol();
+			if (position == start) {
+				String first = readWord();
+				Operator operator = Operator.fromLabel(first);
+				if (operator == null && first.length() > 0) {
+					int afterFirst = position;
+					skipWhitespace();
+					operator = Operator.fromLabel(first + " " + readWord());
+					if (operator == null) {
+						position = afterFirst;
+					}
+				}
+				return operator;
+			}
+			return symbol;
+		}
+
+		/** Read a symbolic operator such as "&gt;=", or nothing. */
+		private Operator parseSymbol() {
+			skipWhitespace();
+			int start = position;
+			while (position < text.length() && "<>=!".indexOf(text.charAt(position)) >= 0) {
+				position++;
+			}
+			return position == start ? null : Operator.fromLabel(text.substring(start, position));
+		}
+
+		/** Whether no operand follows: the text, a parenthesis or a comparison ends here. */
+		private boolean atOperandEnd() {
+			skipWhitespace();
+			return position >= text.length() || text.startsWith("&&", position) || text.startsWith("||", position)
+					|| text.charAt(position) == ')';
+		}
+
+		/**
+		 * Read an operand. An operand that may be empty is empty where no
+		 * operand follows.
+		 */
+		private String parseOperand(boolean mayBeEmpty) throws ParseException {
+			if (mayBeEmpty && atOperandEnd()) {
+				return "";
+			}
+			skipWhitespace();
+			if (position >= text.length()) {
+				throw error("Expected a value");
+			}
+			char quote = text.charAt(position);
+			if (quote != '"' && quote != '\'') {
+				String word = readWord();
+				if (word.length() == 0) {
+					throw error("Expected a value");
+				}
+				return word;
+			}
+			int start = position;
+			StringBuilder value = new StringBuilder();
+			for (position++; position < text.length(); position++) {
+				char c = text.charAt(position);
+				if (c == quote) {
+					position++;
+					return value.toString();
+				}
+				if (c == '\\' && position + 1 < text.length()) {
+					c = text.charAt(++position);
+				}
+				value.append(c);
+			}
+			position = start;
+			throw error("Unterminated string");
+		}
+
+		private String readWord() {
+			int start = position;
+			while (position < text.length() && !isDelimiter(text.charAt(position))) {
+				position++;
+			}
+			return text.substring(start, position);
+		}
+
+		private boolean isDelimiter(char c) {
+			return Character.isWhitespace(c) || "()<>=!&|\"'".indexOf(c) >= 0;
+		}
+
+		private boolean accept(String token) {
+			skipWhitespace();
+			if (text.startsWith(token, position)) {
+				position += token.length();
+				return true;
+			}
+			return false;
+		}
+
+		private void skipWhitespace() {
+			while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+				position++;
+			}
+		}
+
+		private ParseException error(String message) {
+			return new ParseException(message + " at position " + (position + 1) + " of: " + text, position);
+		}
+	}
+
+	enum Causes implements FailureReason {
+		INVALID_EXPRESSION
+	}
+}
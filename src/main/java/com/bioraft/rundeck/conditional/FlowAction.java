@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import com.dtolabs.rundeck.core.execution.workflow.FlowControl;
+
+/**
+ * What a flow control step does to the rest of its workflow.
+ */
+public enum FlowAction {
+	/** Run the remaining steps. */
+	CONTINUE("continue") {
+		@Override
+		void apply(FlowControl flowControl) {
+			flowControl.Continue();
+		}
+	},
+	/** Stop the workflow, reporting success. */
+	HALT("halt") {
+		@Override
+		void apply(FlowControl flowControl) {
+			flowControl.Halt(true);
+		}
+	},
+	/** Stop the workflow, reporting failure. */
+	FAIL("fail") {
+		@Override
+		void apply(FlowControl flowControl) {
+			flowControl.Halt(false);
+		}
+	};
+
+	private final String label;
+
+	FlowAction(String label) {
+		this.label = label;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * Look up an action by its label.
+	 *
+	 * @param label The label, e.g. "halt".
+	 * @return The action.
+	 * @throws IllegalArgumentException If no action has the label.
+	 */
+	public static FlowAction fromLabel(String label) {
+		for (FlowAction action : values()) {
+			if (action.label.equals(label)) {
+				return action;
+			}
+		}
+		throw new IllegalArgumentException("Unknown flow action: " + label);
+	}
+
+	abstract void apply(FlowControl flowControl);
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.util.Map;
+
+import com.dtolabs.rundeck.core.execution.workflow.FlowControl;
+import com.dtolabs.rundeck.core.execution.workflow.steps.FailureReason;
+import com.dtolabs.rundeck.core.execution.workflow.steps.StepException;
+import com.dtolabs.rundeck.core.plugins.Plugin;
+import com.dtolabs.rundeck.core.plugins.configuration.Describable;
+import com.dtolabs.rundeck.core.plugins.configuration.Description;
+import com.dtolabs.rundeck.plugins.ServiceNameConstants;
+import com.dtolabs.rundeck.plugins.descriptions.PluginDescription;
+import com.dtolabs.rundeck.plugins.descriptions.PluginProperty;
+import com.dtolabs.rundeck.plugins.descriptions.RenderingOption;
+import com.dtolabs.rundeck.plugins.descriptions.RenderingOptions;
+import com.dtolabs.rundeck.plugins.descriptions.SelectValues;
+import com.dtolabs.rundeck.plugins.step.PluginStepContext;
+import com.dtolabs.rundeck.plugins.step.StepPlugin;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import static com.dtolabs.rundeck.core.plugins.configuration.StringRenderingConstants.CODE_SYNTAX_MODE;
+import static com.dtolabs.rundeck.core.plugins.configuration.StringRenderingConstants.DISPLAY_TYPE_KEY;
+
+/**
+ * Workflow Step Plug-in that continues the workflow or halts it, with success
+ * or failure, depending on an if/else test or a switch case lookup. It runs
+ * on the server and dispatches nothing to nodes.
+ */
+@Plugin(name = FlowControlStepPlugin.SERVICE_PROVIDER_NAME, service = ServiceNameConstants.WorkflowStep)
+@PluginDescription(title = "Conditional Flow Control", description = "Continues or halts the workflow based on an if-else test or switch/case structure.")
+public class FlowControlStepPlugin implements StepPlugin, Describable {
+
+	public static final String SERVICE_PROVIDER_NAME = "com.bioraft.rundeck.conditional.FlowControlStepPlugin";
+
+	@PluginProperty(title = "Test Value", description = "Test value", required = true)
+	private String testValue;
+
+	@PluginProperty(title = "Operator", description = "Comparison operator")
+	private String operator;
+
+	@PluginProperty(title = "Comparison Value", description = "Value to compare the test value with")
+	private String comparisonValue;
+
+	@PluginProperty(title = "If True", description = "Action if the comparison is true", defaultValue = "halt")
+	@SelectValues(values = { "continue", "halt", "fail" })
+	private String ifTrue;
+
+	@PluginProperty(title = "If False", description = "Action if the comparison is false", defaultValue = "continue")
+	@SelectValues(values = { "continue", "halt", "fail" })
+	private String ifFalse;
+
+	@PluginProperty(title = "Cases", description = "Used instead of a comparison: switch cases whose values are the actions continue, halt or fail")
+	@RenderingOptions({
+			@RenderingOption(key = DISPLAY_TYPE_KEY, value = "CODE"),
+			@RenderingOption(key = CODE_SYNTAX_MODE, value = "json"),
+	})
+	private String cases;
+
+	@PluginProperty(title = "Match Mode", description = "How cases are matched (default: exact)", defaultValue = Switch.MODE_EXACT)
+	@SelectValues(values = { Switch.MODE_EXACT, Switch.MODE_REGEX, Switch.MODE_RANGE, Switch.MODE_PREFIX,
+			Switch.MODE_SUFFIX, Switch.MODE_GLOB })
+	private String matchMode;
+
+	@PluginProperty(title = "Default", description = "Action if no case matches (default: continue)", defaultValue = "continue")
+	@SelectValues(values = { "continue", "halt", "fail" })
+	private String defaultValue;
+
+	@Override
+	public Description getDescription() {
+		return Operator.describe(this, false);
+	}
+
+	@Override
+	public void executeStep(final PluginStepContext ctx, final Map<String, Object> cfg) throws StepException {
+
+		String test = String.valueOf(cfg.getOrDefault("testValue", testValue == null ? "" : testValue));
+		String casesValue = String.valueOf(cfg.getOrDefault("cases", cases == null ? "" : cases));
+		String operatorValue = String.valueOf(cfg.getOrDefault("operator", operator == null ? "" : operator));
+
+		FlowAction action;
+		try {
+			if (casesValue.length() > 0) {
+				String mode = String.valueOf(cfg.getOrDefault("matchMode", matchMode == null ? "" : matchMode));
+				CaseResult result = MatchMode.fromLabel(mode).forCases(casesValue).find(test);
+				action = FlowAction.fromLabel(result != null ? result.getValue() : option(cfg, "defaultValue",
+						defaultValue, FlowAction.CONTINUE));
+			} else if (operatorValue.length() > 0) {
+				Operator resolved = Operator.fromLabel(operatorValue);
+				if (resolved == null) {
+					throw new StepException("Unknown operator: " + operatorValue, Causes.INVALID_OPERATOR);
+				}
+				Object value = cfg.getOrDefault("comparisonValue", comparisonValue);
+				boolean matched = Comparison.of(resolved, value == null ? "" : value.toString()).test(test);
+				action = FlowAction.fromLabel(matched ? option(cfg, "ifTrue", ifTrue, FlowAction.HALT)
+						: option(cfg, "ifFalse", ifFalse, FlowAction.CONTINUE));
+			} else {
+				throw new StepException("Either an operator or cases are required.", Causes.NO_CONDITION);
+			}
+		} catch (JsonProcessingException e) {
+			throw new StepException(e.getMessage(), Switch.Causes.INVALID_JSON);
+		} catch (IllegalArgumentException e) {
+			throw new StepException(e.getMessage(), Switch.Causes.INVALID_CASE);
+		}
+
+		new StepLogger(ctx).debug(() -> "Flow control for " + test + ": " + action.getLabel() + ".");
+		FlowControl flowControl = ctx.getFlowControl();
+		if (flowControl == null) {
+			if (action == FlowAction.CONTINUE) {
+				return;
+			}
+			throw new StepException("Flow control is not available to halt the workflow.", Causes.NO_FLOW_CONTROL);
+		}
+		action.apply(flowControl);
+	}
+
+	/** A configured action label, or the label of a default action if none is set. */
+	private static String option(Map<String, Object> cfg, String key, String field, FlowAction defaultAction) {
+		Object value = cfg.getOrDefault(key, field);
+		return value == null || value.toString().length() == 0 ? defaultAction.getLabel() : value.toString();
+	}
+
+	enum Causes implements FailureReason {
+		NO_CONDITION, INVALID_OPERATOR, NO_FLOW_CONTROL
+	}
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Switch cases whose keys are shell-style glob patterns: '*' matches any run
+ * of characters, '?' matches one character and a backslash escapes the next
+ * character. When several patterns match, the first one listed wins.
+ *
+ * All patterns of a table are compiled together into one automaton. Its
+ * deterministic states are built lazily, the first time a lookup reaches
+ * them, and then reused, so a lookup is a single pass over the test value
+ * with no backtracking however many patterns there are. Characters that do
+ * not appear literally in any pattern share a single transition.
+ */
+public class GlobCaseTable implements CaseMatcher {
+
+	/** Maximum number of deterministic states kept; beyond this they are computed on the fly. */
+	public static final int MAX_STATES = 10000;
+
+	private static final char ANY = '?';
+
+	private static final char STAR = '*';
+
+	/** Pattern tokens; '?' and '*' are wildcards unless marked literal. */
+	private final char[][] tokens;
+
+	private final boolean[][] literal;
+
+	/** First NFA state number of each pattern. */
+	private final int[] offsets;
+
+	/** Sorted characters that appear literally in some pattern. */
+	private final char[] alphabet;
+
+	/** Character class of each ASCII character; class 0 is "any other character". */
+	private final int[] asciiClass = new int[128];
+
+	private final CaseResult[] results;
+
+	private final Map<StateSet, State> states = new ConcurrentHashMap<>();
+
+	private final State start;
+
+	/**
+	 * Compile the case keys as glob patterns.
+	 *
+	 * @param entries The parsed cases.
+	 * @throws IllegalArgumentException If a pattern ends with a lone backslash.
+	 */
+	public GlobCaseTable(CaseEntries entries) {
+		int size = entries.size();
+		tokens = new char[size][];
+		literal = new boolean[size][];
+		offsets = new int[size];
+		results = new CaseResult[size];
+		TreeSet<Character> chars = new TreeSet<>();
+		int offset = 0;
+		for (int p = 0; p < size; p++) {
+			tokenize(p, entries.getKey(p));
+			for (int i = 0; i < tokens[p].length; i++) {
+				if (literal[p][i]) {
+					chars.add(tokens[p][i]);
+				}
+			}
+			offsets[p] = offset;
+			offset += tokens[p].length + 1;
+			results[p] = entries.getResult(p);
+		}
+
+		alphabet = new char[chars.size()];
+		int i = 0;
+		for (char c : chars) {
+			alphabet[i++] = c;
+		}
+		for (char c = 0; c < asciiClass.length; c++) {
+			asciiClass[c] = lookupClass(c);
+		}
+
+		int[] initial = new int[size];
+		for (int p = 0; p < size; p++) {
+			initial[p] = offsets[p];
+		}
+		start = state(closure(initial, size));
+	}
+
+	private void tokenize(int p, String key) {
+		char[] chars = new char[key.length()];
+		boolean[] isLiteral = new boolean[key.length()];
+		int n = 0;
+		for (int i = 0; i < key.length(); i++) {
+			char c = key.charAt(i);
+			if (c == '\\') {
+				if (++i == key.length()) {
+					throw new IllegalArgumentException("Glob pattern ends with an escape: " + key);
+				}
+				chars[n] = key.charAt(i);
+				isLiteral[n++] = true;
+			} else if (c == STAR && n > 0 && chars[n - 1] == STAR && !isLiteral[n - 1]) {
+				// Consecutive stars are equivalent to one.
+				continue;
+			} else {
+				chars[n] = c;
+				isLiteral[n++] = c != ANY && c != STAR;
+			}
+		}
+		tokens[p] = Arrays.copyOf(chars, n);
+		literal[p] = Arrays.copyOf(isLiteral, n);
+	}
+
+	@Override
+	public CaseResult find(String test) {
+		State state = start;
+		for (int i = 0; i < test.length() && !state.isDead(); i++) {
+			state = state.next(this, classOf(test.charAt(i)));
+		}
+		return state.accept < 0 ? null : results[state.accept];
+	}
+
+	private int classOf(char c) {
+		return c < asciiClass.length ? asciiClass[c] : lookupClass(c);
+	}
+
+	private int lookupClass(char c) {
+		int index = Arrays.binarySearch(alphabet, c);
+		return index < 0 ? 0 : index + 1;
+	}
+
+	/** True if token i of pattern p consumes a character of the given class. */
+	private boolean accepts(int p, int i, int charClass) {
+		if (!literal[p][i]) {
+			return true;
+		}
+		return charClass > 0 && tokens[p][i] == alphabet[charClass - 1];
+	}
+
+	private State transition(State from, int charClass) {
+		int[] next = new int[from.set.states.length];
+		int n = 0;
+		for (int state : from.set.states) {
+			int p = pattern(state);
+			int i = state - offsets[p];
+			if (i == tokens[p].length) {
+				continue;
+			}
+			if (!literal[p][i] && tokens[p][i] == STAR) {
+				next[n++] = state;
+			} else if (accepts(p, i, charClass)) {
+				next[n++] = state + 1;
+			}
+		}
+		return state(closure(next, n));
+	}
+
+	/** Add the states reachable by skipping stars, then sort and deduplicate. */
+	private StateSet closure(int[] states, int n) {
+		TreeSet<Integer> set = new TreeSet<>();
+		for (int k = 0; k < n; k++) {
+			int state = states[k];
+			set.add(state);
+			int p = pattern(state);
+			for (int i = state - offsets[p]; i < tokens[p].length && !literal[p][i] && tokens[p][i] == STAR; i++) {
+				set.add(offsets[p] + i + 1);
+			}
+		}
+		int[] sorted = new int[set.size()];
+		int k = 0;
+		for (int state : set) {
+			sorted[k++] = state;
+		}
+		return new StateSet(sorted);
+	}
+
+	private int pattern(int state) {
+		int p = Arrays.binarySearch(offsets, state);
+		return p >= 0 ? p : -p - 2;
+	}
+
+	private State state(StateSet set) {
+		State state = states.get(set);
+		if (state != null) {
+			return state;
+		}
+		int accept = -1;
+		for (int s : set.states) {
+			int p = pattern(s);
+			if (s - offsets[p] == tokens[p].length) {
+				accept = p;
+				break;
+			}
+		}
+		if (states.size() >= MAX_STATES) {
+			return new State(set, accept, alphabet.length + 1, false);
+		}
+		state = new State(set, accept, alphabet.length + 1, true);
+		State existing = states.putIfAbsent(set, state);
+		return existing == null ? state : existing;
+	}
+
+	int stateCount() {
+		return states.size();
+	}
+
+	/** Sorted NFA state numbers, usable as a map key. */
+	private static final class StateSet {
+
+		final int[] states;
+
+		private final int hash;
+
+		StateSet(int[] states) {
+			this.states = states;
+			this.hash = Arrays.hashCode(states);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof StateSet && Arrays.equals(states, ((StateSet) other).states);
+		}
+	}
+
+	/** A deterministic state with lazily filled transitions per character class. */
+	private static final class State {
+
+		final StateSet set;
+
+		/** Index of the first pattern accepted in this state, or -1. */
+		final int accept;
+
+		/** False for states built after the state limit was reached; these are not remembered. */
+		final boolean interned;
+
+		/**
+		 * Transitions per character class. Filled racily: a thread that misses
+		 * another's write simply computes the same interned state again.
+		 */
+		private final State[] next;
+
+		State(StateSet set, int accept, int classes, boolean interned) {
+			this.set = set;
+			this.accept = accept;
+			this.interned = interned;
+			this.next = new State[classes];
+		}
+
+		boolean isDead() {
+			return set.states.length == 0;
+		}
+
+		State next(GlobCaseTable table, int charClass) {
+			State state = next[charClass];
+			if (state == null) {
+				state = table.transition(this, charClass);
+				if (state.interned) {
+					next[charClass] = state;
+				}
+			}
+			return state;
+		}
+	}
+}
@@ -15,10 +15,10 @@
  */
 package com.bioraft.rundeck.conditional;
 
-import com.dtolabs.rundeck.core.Constants;
-import com.dtolabs.rundeck.core.dispatcher.ContextView;
 import com.dtolabs.rundeck.plugins.step.PluginStepContext;
 
+import java.text.ParseException;
+import java.util.EnumMap;
 import java.util.Map;
 
 /**
@@ -38,6 +38,7 @@ public class IfElse {
 	public static final String STRING_GT = "gt";
 	public static final String STRING_BEG = "begins with";
 	public static final String STRING_END = "ends with";
+	public static final String STRING_MATCH = "matches";
 	public static final String NUMBER_NE = "!=";
 	public static final String NUMBER_LT = "<";
 	public static final String NUMBER_LE = "<=";
@@ -45,8 +46,30 @@ public class IfElse {
 	public static final String NUMBER_GE = ">=";
 	public static final String NUMBER_GT = ">";
 
+	private static final Map<Operator, ConditionalMetrics.Timer> TIMERS = new EnumMap<>(Operator.class);
+
+	private static final Map<Operator, ExecutionScope.Compiler<Comparison, RuntimeException>> COMPILERS = new EnumMap<>(
+			Operator.class);
+
+	/** ExecutionScope kind of the comparison for each operator. */
+	private static final Map<Operator, String> KINDS = new EnumMap<>(Operator.class);
+
+	private static final ConditionalMetrics.Timer UNKNOWN_OPERATOR = ConditionalMetrics.timer("ifElse.unknown");
+
+	private static final ConditionalMetrics.Timer EXPRESSION = ConditionalMetrics.timer("expression");
+
+	static {
+		for (Operator operator : Operator.values()) {
+			TIMERS.put(operator, ConditionalMetrics.timer("ifElse." + operator.getLabel()));
+			COMPILERS.put(operator, value -> Comparison.of(operator, value));
+			KINDS.put(operator, "comparison." + operator.name());
+		}
+	}
+
 	private PluginStepContext ctx;
 
+	private StepLogger log;
+
 	private Map<String, Object> cfg;
 
 	/** If specified, also create a variable in global export context. */
@@ -58,7 +81,18 @@ public class IfElse {
 	 * @param ctx Plugin step context.
 	 */
 	public IfElse(PluginStepContext ctx) {
+		this(ctx, new StepLogger(ctx));
+	}
+
+	/**
+	 * Constructor sets PluginStepContext and the logger already created for it.
+	 *
+	 * @param ctx Plugin step context.
+	 * @param log Logger for the step.
+	 */
+	public IfElse(PluginStepContext ctx, StepLogger log) {
 		this.ctx = ctx;
+		this.log = log;
 	}
 
 	/**
@@ -100,81 +134,73 @@ public class IfElse {
 		ifTrue = cfg.getOrDefault("ifTrue", ifTrue).toString();
 		ifFalse = cfg.getOrDefault("ifFalse", ifFalse).toString();
 
-		String value;
-		String matched;
-
-		if (operator.equals(STRING_EQ) && testValue.equals(comparisonValue)) {
-			matched =  STRING_EQ;
-		} else if (operator.equals(STRING_NE) && !testValue.equals(comparisonValue)) {
-			matched =  STRING_NE;
-		} else {
-			matched = compareString(operator, testValue, comparisonValue);
+		long start = System.nanoTime();
+		Operator resolved = Operator.fromLabel(operator);
+		ConditionalMetrics.Timer timer = resolved == null ? UNKNOWN_OPERATOR : TIMERS.get(resolved);
+		if (resolved == null) {
+			timer.parseError();
 		}
+		boolean matched = resolved != null && comparison(resolved, comparisonValue).test(testValue);
+		timer.record(assign(group, name, matched, resolved, ifTrue, ifFalse), start);
+	}
 
-		if (matched.equals("")) {
-			matched = compareNumeric(operator, testValue, comparisonValue);
-		}
+	/**
+	 * Add ifTrue value to SharedOutputContext if a compound condition passes,
+	 * otherwise add ifFalse if not null.
+	 *
+	 * @param group      The group to place the variable in.
+	 * @param name       The name of the variable.
+	 * @param expression The condition, e.g. "${option.env}" eq "prod" &amp;&amp; 8 &lt;= 16.
+	 * @param ifTrue     The value to return if the condition is true.
+	 * @param ifFalse    The value to return if the condition is false.
+	 * @throws ParseException If the condition is not a valid expression.
+	 */
+	public void ifExpression(String group, String name, String expression, String ifTrue, String ifFalse)
+			throws ParseException {
 
-		if (matched.equals("")) {
-			if (ifFalse.length() == 0) {
-				ctx.getLogger().log(Constants.DEBUG_LEVEL, "No match, default is empty.");
-				return;
-			}
-			ctx.getLogger().log(Constants.DEBUG_LEVEL, "No match, using default.");
-			value = ifFalse;
-		} else {
-			value = ifTrue;
-			ctx.getLogger().log(Constants.DEBUG_LEVEL, "Matched " + matched + ", returning ifTrue value.");
-		}
+		group = cfg.getOrDefault("group", group).toString();
+		name = cfg.getOrDefault("name", name).toString();
+		expression = cfg.getOrDefault("condition", expression).toString();
+		ifTrue = cfg.getOrDefault("ifTrue", ifTrue).toString();
+		ifFalse = cfg.getOrDefault("ifFalse", ifFalse).toString();
 
-		ctx.getOutputContext().addOutput(group, name, value);
-		if (elevate) {
-			String groupName = group + "." + name;
-			ctx.getOutputContext().addOutput(ContextView.global(), "export", groupName, value);
-			ctx.getLogger().log(Constants.DEBUG_LEVEL, "Elevating to globsal ${export." + groupName + "}.");
+		long start = System.nanoTime();
+		boolean matched;
+		try {
+			matched = Expression.forText(expression).evaluate();
+		} catch (ParseException e) {
+			EXPRESSION.parseError();
+			throw e;
 		}
+		EXPRESSION.record(assign(group, name, matched, "condition", ifTrue, ifFalse), start);
 	}
 
-	private String compareString(String operator, String testValue, String comparisonValue) {
-		if (operator.equals(STRING_BEG) && testValue.startsWith(comparisonValue)) {
-			return STRING_BEG;
-		} else if (operator.equals(STRING_END) && testValue.endsWith(comparisonValue)) {
-			return STRING_END;
-		}
-
-		int compare = testValue.compareTo(comparisonValue);
-		if (operator.equals(STRING_LT) && compare < 0) {
-			return STRING_LT;
-		} else if (operator.equals(STRING_LE) && compare <= 0) {
-			return STRING_LE;
-		} else if (operator.equals(STRING_GE) && compare >= 0) {
-			return STRING_GE;
-		} else if (operator.equals(STRING_GT) && compare > 0) {
-			return STRING_GT;
-		}
-		return "";
+	/**
+	 * Get the comparison for this step, shared with the other nodes of the
+	 * execution when the operator and comparison value are the same.
+	 */
+	private Comparison comparison(Operator operator, String comparisonValue) {
+		return ExecutionScope.shared(ctx, KINDS.get(operator), comparisonValue, COMPILERS.get(operator));
 	}
 
-	private String compareNumeric(String operator, String testValue, String comparisonValue) {
-		try {
-			double testDouble = Double.parseDouble(testValue);
-			double comparisonDouble = Double.parseDouble(comparisonValue);
-			if (operator.equals(NUMBER_LT) && testDouble < comparisonDouble) {
-				return NUMBER_LT;
-			} else if (operator.equals(NUMBER_LE) && testDouble <= comparisonDouble) {
-				return NUMBER_LE;
-			} else if (operator.equals(NUMBER_GE) && testDouble >= comparisonDouble) {
-				return NUMBER_GE;
-			} else if (operator.equals(NUMBER_GT) && testDouble > comparisonDouble) {
-				return NUMBER_GT;
-			} else if (operator.equals(NUMBER_EQ) && testDouble == comparisonDouble) {
-				return NUMBER_EQ;
-			} else if (operator.equals(NUMBER_NE) && testDouble != comparisonDouble) {
-				return NUMBER_NE;
+	private ConditionalMetrics.Outcome assign(String group, String name, boolean matched, Object matchedBy,
+			String ifTrue, String ifFalse) {
+		String value;
+		if (!matched) {
+			if (ifFalse.length() == 0) {
+				log.debug("No match, default is empty.");
+				return ConditionalMetrics.Outcome.UNMATCHED;
+			}
+			log.debug("No match, using default.");
+			value = ifFalse;
+		} else {
+			value = ifTrue;
+			if (log.isDebugEnabled()) {
+				log.debug("Matched " + matchedBy + ", returning ifTrue value.");
 			}
-		} catch (Exception e) {
-			return "";
 		}
-		return "";
+
+		Outputs.add(ctx, log, elevate, group, name, value);
+		return matched ? ConditionalMetrics.Outcome.MATCHED : ConditionalMetrics.Outcome.DEFAULTED;
 	}
 }
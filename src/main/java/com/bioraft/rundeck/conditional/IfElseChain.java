@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import com.dtolabs.rundeck.plugins.step.PluginStepContext;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Immutable chain of if / else-if branches that choose one value.
+ *
+ * Branches are given as a JSON array of objects with the members testValue,
+ * operator, comparisonValue and result. They are tested in order with the
+ * operators and semantics of IfElse, and testing stops at the first branch
+ * that is true. Compiled chains are cached by the raw branches string.
+ */
+public class IfElseChain {
+
+	/** Maximum number of compiled chains kept in memory. */
+	public static final int CACHE_SIZE = 256;
+
+	private static final LruCache<String, IfElseChain> CACHE = new LruCache<>("ifElseChain", CACHE_SIZE);
+
+	private static final ConditionalMetrics.Timer TIMER = ConditionalMetrics.timer("ifElseChain");
+
+	/** Encodes chains for the on-disk cache. */
+	static final DiskCache.Codec<IfElseChain> CODEC = new DiskCache.Codec<IfElseChain>() {
+		@Override
+		public void write(IfElseChain chain, DataOutput out) throws IOException {
+			Rule.writeAll(chain.branches, out);
+		}
+
+		@Override
+		public IfElseChain read(DataInput in) throws IOException {
+			return new IfElseChain(Rule.readAll(in));
+		}
+	};
+
+	private final List<Rule> branches;
+
+	private IfElseChain(List<Rule> branches) {
+		this.branches = branches;
+	}
+
+	/**
+	 * Get the compiled chain for a branches string, compiling it on first use.
+	 *
+	 * @param branches The branches as a JSON array of objects.
+	 * @return The compiled chain.
+	 * @throws JsonProcessingException If the branches cannot be parsed.
+	 */
+	public static IfElseChain forBranches(String branches) throws JsonProcessingException {
+		return DiskCache.get(CACHE, "chain", branches, CODEC, IfElseChain::compile);
+	}
+
+	/**
+	 * Parse a branches string into a new chain without consulting the cache.
+	 *
+	 * @param branches The branches as a JSON array of objects.
+	 * @return The compiled chain.
+	 * @throws JsonProcessingException If the branches cannot be parsed or a
+	 *                                 branch has an unknown operator.
+	 */
+	public static IfElseChain compile(String branches) throws JsonProcessingException {
+		return new IfElseChain(Rule.parse(branches, "Branch", "result"));
+	}
+
+	public int size() {
+		return branches.size();
+	}
+
+	/**
+	 * Find the first true branch.
+	 *
+	 * @return The index of the first true branch, or -1 if none is true.
+	 */
+	public int firstTrue() {
+		for (int i = 0; i < branches.size(); i++) {
+			if (branches.get(i).test()) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Write the result of the first true branch, or the else value if no
+	 * branch is true and it is not empty, to the shared output context.
+	 *
+	 * @param ctx       Plugin step context.
+	 * @param group     The group to place the variable in.
+	 * @param name      The name of the variable.
+	 * @param elseValue The value if no branch is true.
+	 * @param elevate   If specified, also create a variable in global export
+	 *                  context.
+	 * @return Whether a branch matched, the else value was used, or nothing
+	 *         was set.
+	 */
+	public ConditionalMetrics.Outcome apply(PluginStepContext ctx, String group, String name, String elseValue,
+			boolean elevate) {
+		long start = System.nanoTime();
+		StepLogger log = new StepLogger(ctx);
+		int index = firstTrue();
+		ConditionalMetrics.Outcome outcome;
+		String value;
+		if (index >= 0) {
+			Rule branch = branches.get(index);
+			if (log.isDebugEnabled()) {
+				log.debug("Matched branch " + (index + 1) + ": " + branch + ".");
+			}
+			outcome = ConditionalMetrics.Outcome.MATCHED;
+			value = branch.ifTrue;
+		} else if (elseValue != null && elseValue.length() > 0) {
+			log.debug("No branch matched, using else value.");
+			outcome = ConditionalMetrics.Outcome.DEFAULTED;
+			value = elseValue;
+		} else {
+			log.debug("No branch matched, else value is empty.");
+			TIMER.record(ConditionalMetrics.Outcome.UNMATCHED, start);
+			return ConditionalMetrics.Outcome.UNMATCHED;
+		}
+		Outputs.add(ctx, log, elevate, group, name, value);
+		TIMER.record(outcome, start);
+		return outcome;
+	}
+
+	/**
+	 * Count a chain that could not be parsed.
+	 */
+	static void parseError() {
+		TIMER.parseError();
+	}
+}
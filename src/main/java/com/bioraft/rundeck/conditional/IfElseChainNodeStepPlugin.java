@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.util.Map;
+
+import com.dtolabs.rundeck.core.common.INodeEntry;
+import com.dtolabs.rundeck.core.execution.workflow.steps.node.NodeStepException;
+import com.dtolabs.rundeck.core.plugins.Plugin;
+import com.dtolabs.rundeck.plugins.ServiceNameConstants;
+import com.dtolabs.rundeck.plugins.descriptions.PluginDescription;
+import com.dtolabs.rundeck.plugins.descriptions.PluginProperty;
+import com.dtolabs.rundeck.plugins.descriptions.RenderingOption;
+import com.dtolabs.rundeck.plugins.descriptions.RenderingOptions;
+import com.dtolabs.rundeck.plugins.step.NodeStepPlugin;
+import com.dtolabs.rundeck.plugins.step.PluginStepContext;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import static com.dtolabs.rundeck.core.plugins.configuration.StringRenderingConstants.CODE_SYNTAX_MODE;
+import static com.dtolabs.rundeck.core.plugins.configuration.StringRenderingConstants.DISPLAY_TYPE_KEY;
+
+/**
+ * Workflow Node Step Plug-in to choose a variable value from the first true branch of an
+ * if / else-if chain.
+ */
+@Plugin(name = IfElseChainNodeStepPlugin.SERVICE_PROVIDER_NAME, service = ServiceNameConstants.WorkflowNodeStep)
+@PluginDescription(title = "If-Else Chain Node Step", description = "Chooses a variable value from the first of several if-else tests that is true, or an else value.")
+public class IfElseChainNodeStepPlugin implements NodeStepPlugin {
+
+	public static final String SERVICE_PROVIDER_NAME = "com.bioraft.rundeck.conditional.IfElseChainNodeStepPlugin";
+
+	@PluginProperty(title = "Group", description = "Variable group (i.e., ${group.x}", required = true)
+	private String group;
+
+	@PluginProperty(title = "Name", description = "Variable name (i.e., ${group.name}", required = true)
+	private String name;
+
+	@PluginProperty(title = "Branches", description = "JSON array of objects with testValue, operator, comparisonValue and result, tested in order", required = true)
+	@RenderingOptions({
+			@RenderingOption(key = DISPLAY_TYPE_KEY, value = "CODE"),
+			@RenderingOption(key = CODE_SYNTAX_MODE, value = "json"),
+	})
+	private String branches;
+
+	@PluginProperty(title = "Else", description = "Value to assign if no branch is true")
+	private String elseValue;
+
+	@PluginProperty(title = "Make global?", description = "Elevate this variable to global scope (default: false)")
+	private boolean elevateToGlobal;
+
+	@Override
+	public void executeNodeStep(PluginStepContext ctx, Map<String, Object> cfg, INodeEntry node)
+			throws NodeStepException {
+
+		boolean elevate = Config.flag(cfg, "elevateToGlobal", elevateToGlobal);
+		String groupValue = cfg.getOrDefault("group", group).toString();
+		String nameValue = cfg.getOrDefault("name", name).toString();
+		String branchesValue = cfg.getOrDefault("branches", branches).toString();
+		Object elseOption = cfg.getOrDefault("elseValue", elseValue);
+
+		IfElseChain chain;
+		try {
+			chain = ExecutionScope.shared(ctx, "chain", branchesValue, IfElseChain::forBranches);
+		} catch (JsonProcessingException e) {
+			IfElseChain.parseError();
+			throw new NodeStepException(e.getMessage(), Switch.Causes.INVALID_JSON, node.getNodename());
+		}
+		chain.apply(ctx, groupValue, nameValue, elseOption == null ? "" : elseOption.toString(), elevate);
+	}
+
+}
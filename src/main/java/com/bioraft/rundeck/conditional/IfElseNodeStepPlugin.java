@@ -17,14 +17,14 @@ package com.bioraft.rundeck.conditional;
 
 import java.util.Map;
 
-import com.dtolabs.rundeck.core.Constants;
 import com.dtolabs.rundeck.core.common.INodeEntry;
 import com.dtolabs.rundeck.core.execution.workflow.steps.node.NodeStepException;
 import com.dtolabs.rundeck.core.plugins.Plugin;
+import com.dtolabs.rundeck.core.plugins.configuration.Describable;
+import com.dtolabs.rundeck.core.plugins.configuration.Description;
 import com.dtolabs.rundeck.plugins.ServiceNameConstants;
 import com.dtolabs.rundeck.plugins.descriptions.PluginDescription;
 import com.dtolabs.rundeck.plugins.descriptions.PluginProperty;
-import com.dtolabs.rundeck.plugins.descriptions.SelectValues;
 import com.dtolabs.rundeck.plugins.step.NodeStepPlugin;
 import com.dtolabs.rundeck.plugins.step.PluginStepContext;
 
@@ -37,7 +37,7 @@ import com.dtolabs.rundeck.plugins.step.PluginStepContext;
  */
 @Plugin(name = IfElseNodeStepPlugin.SERVICE_PROVIDER_NAME, service = ServiceNameConstants.WorkflowNodeStep)
 @PluginDescription(title = "If-Else Conditional Node Step", description = "Chooses between two options for a variable value based on if-else test.")
-public class IfElseNodeStepPlugin implements NodeStepPlugin {
+public class IfElseNodeStepPlugin implements NodeStepPlugin, Describable {
 
 	public static final String SERVICE_PROVIDER_NAME = "com.bioraft.rundeck.conditional.IfTestWorkflowNodeStepPlugin";
 
@@ -51,9 +51,6 @@ public class IfElseNodeStepPlugin implements NodeStepPlugin {
 	private String testValue;
 
 	@PluginProperty(title = "Operator", description = "Comparison operator", required = true)
-	@SelectValues(values = { IfElse.STRING_EQ, IfElse.STRING_NE, IfElse.STRING_LT, IfElse.STRING_LE, IfElse.STRING_GE,
-			IfElse.STRING_GT, IfElse.STRING_BEG, IfElse.STRING_END, IfElse.NUMBER_EQ, IfElse.NUMBER_NE,
-			IfElse.NUMBER_LT, IfElse.NUMBER_LE, IfElse.NUMBER_GE, IfElse.NUMBER_GT })
 	private String operator;
 
 	@PluginProperty(title = "Comparison Value", description = "Second test value", required = true)
@@ -68,16 +65,24 @@ public class IfElseNodeStepPlugin implements NodeStepPlugin {
 	@PluginProperty(title = "Make global?", description = "Elevate this variable to global scope (default: false)")
 	private boolean elevateToGlobal;
 
+	@Override
+	public Description getDescription() {
+		return Operator.describe(this);
+	}
+
 	@Override
 	public void executeNodeStep(PluginStepContext ctx, Map<String, Object> cfg, INodeEntry node)
 			throws NodeStepException {
 
-		elevateToGlobal = (boolean) cfg.getOrDefault("elevateToGlobal", this.elevateToGlobal);
+		boolean elevate = Config.flag(cfg, "elevateToGlobal", elevateToGlobal);
 
-		String message = "Setting " + group + "." + name + " based on " + testValue + " " + operator + " " + comparisonValue;
-		ctx.getLogger().log(Constants.DEBUG_LEVEL, message);
+		StepLogger log = new StepLogger(ctx);
+		if (log.isDebugEnabled()) {
+			log.debug("Setting " + group + "." + name + " based on " + testValue + " " + operator + " "
+					+ comparisonValue);
+		}
 
-		(new IfElse(ctx)).setElevate(elevateToGlobal).setCfg(cfg)
+		(new IfElse(ctx, log)).setElevate(elevate).setCfg(cfg)
 				.ifElse(group, name, testValue, operator, comparisonValue, ifTrue, ifFalse);
 	}
 
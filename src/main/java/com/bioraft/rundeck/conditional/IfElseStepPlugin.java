@@ -17,13 +17,13 @@ package com.bioraft.rundeck.conditional;
 
 import java.util.Map;
 
-import com.dtolabs.rundeck.core.Constants;
 import com.dtolabs.rundeck.core.execution.workflow.steps.StepException;
 import com.dtolabs.rundeck.core.plugins.Plugin;
+import com.dtolabs.rundeck.core.plugins.configuration.Describable;
+import com.dtolabs.rundeck.core.plugins.configuration.Description;
 import com.dtolabs.rundeck.plugins.ServiceNameConstants;
 import com.dtolabs.rundeck.plugins.descriptions.PluginDescription;
 import com.dtolabs.rundeck.plugins.descriptions.PluginProperty;
-import com.dtolabs.rundeck.plugins.descriptions.SelectValues;
 import com.dtolabs.rundeck.plugins.step.PluginStepContext;
 import com.dtolabs.rundeck.plugins.step.StepPlugin;
 
@@ -36,7 +36,7 @@ import com.dtolabs.rundeck.plugins.step.StepPlugin;
  */
 @Plugin(name = IfElseStepPlugin.SERVICE_PROVIDER_NAME, service = ServiceNameConstants.WorkflowStep)
 @PluginDescription(title = "If-Else Conditional", description = "Chooses between two options for a variable value based on if-else test.")
-public class IfElseStepPlugin implements StepPlugin {
+public class IfElseStepPlugin implements StepPlugin, Describable {
 
 	public static final String SERVICE_PROVIDER_NAME = "com.bioraft.rundeck.conditional.IfTestWorkflowStepPlugin";
 
@@ -50,11 +50,6 @@ public class IfElseStepPlugin implements StepPlugin {
 	private String testValue;
 
 	@PluginProperty(title = "Operator", description = "Comparison operator", required = true)
-	@SelectValues(values = { IfElse.STRING_EQ, IfElse.STRING_NE, IfElse.STRING_LT,
-			IfElse.STRING_LE, IfElse.STRING_GE, IfElse.STRING_GT,
-			IfElse.STRING_BEG, IfElse.STRING_END, IfElse.NUMBER_EQ,
-			IfElse.NUMBER_NE, IfElse.NUMBER_LT, IfElse.NUMBER_LE,
-			IfElse.NUMBER_GE, IfElse.NUMBER_GT })
 	private String operator;
 
 	@PluginProperty(title = "Comparison Value", description = "Second test value", required = true)
@@ -69,15 +64,23 @@ public class IfElseStepPlugin implements StepPlugin {
 	@PluginProperty(title = "Make global?", description = "Elevate this variable to global scope (default: false)")
 	private boolean elevateToGlobal;
 
+	@Override
+	public Description getDescription() {
+		return Operator.describe(this);
+	}
+
 	@Override
 	public void executeStep(final PluginStepContext ctx, final Map<String, Object> cfg) throws StepException {
 
-		elevateToGlobal = (boolean) cfg.getOrDefault("elevateToGlobal", this.elevateToGlobal);
+		boolean elevate = Config.flag(cfg, "elevateToGlobal", elevateToGlobal);
 
-		String message = "Setting " + group + "." + name + " based on " + testValue + " " + operator + " " + comparisonValue;
-		ctx.getLogger().log(Constants.DEBUG_LEVEL, message);
+		StepLogger log = new StepLogger(ctx);
+		if (log.isDebugEnabled()) {
+			log.debug("Setting " + group + "." + name + " based on " + testValue + " " + operator + " "
+					+ comparisonValue);
+		}
 
-		(new IfElse(ctx)).setElevate(elevateToGlobal).setCfg(cfg)
+		(new IfElse(ctx, log)).setElevate(elevate).setCfg(cfg)
 				.ifElse(group, name, testValue, operator, comparisonValue, ifTrue, ifFalse);
 	}
 
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.util.Map;
+
+import com.dtolabs.rundeck.core.execution.workflow.steps.StepException;
+import com.dtolabs.rundeck.core.plugins.Plugin;
+import com.dtolabs.rundeck.plugins.ServiceNameConstants;
+import com.dtolabs.rundeck.plugins.descriptions.PluginDescription;
+import com.dtolabs.rundeck.plugins.descriptions.PluginProperty;
+import com.dtolabs.rundeck.plugins.descriptions.RenderingOption;
+import com.dtolabs.rundeck.plugins.descriptions.RenderingOptions;
+import com.dtolabs.rundeck.plugins.step.PluginStepContext;
+import com.dtolabs.rundeck.plugins.step.StepPlugin;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import static com.dtolabs.rundeck.core.plugins.configuration.StringRenderingConstants.CODE_SYNTAX_MODE;
+import static com.dtolabs.rundeck.core.plugins.configuration.StringRenderingConstants.DISPLAY_TYPE_KEY;
+
+/**
+ * Workflow Step Plug-in to set many variables from a table of if/else rules
+ * in a single step.
+ */
+@Plugin(name = IfElseTableStepPlugin.SERVICE_PROVIDER_NAME, service = ServiceNameConstants.WorkflowStep)
+@PluginDescription(title = "If-Else Rule Table", description = "Sets several variables, each chosen between two options by an if-else test.")
+public class IfElseTableStepPlugin implements StepPlugin {
+
+	public static final String SERVICE_PROVIDER_NAME = "com.bioraft.rundeck.conditional.IfElseTableStepPlugin";
+
+	@PluginProperty(title = "Group", description = "Variable group for rules that do not specify one (i.e., ${group.x}")
+	private String group;
+
+	@PluginProperty(title = "Rules", description = "JSON array of objects with group, name, testValue, operator, comparisonValue, ifTrue and ifFalse", required = true)
+	@RenderingOptions({
+			@RenderingOption(key = DISPLAY_TYPE_KEY, value = "CODE"),
+			@RenderingOption(key = CODE_SYNTAX_MODE, value = "json"),
+	})
+	private String rules;
+
+	@PluginProperty(title = "Make global?", description = "Elevate these variables to global scope (default: false)")
+	private boolean elevateToGlobal;
+
+	@Override
+	public void executeStep(final PluginStepContext ctx, final Map<String, Object> cfg) throws StepException {
+
+		boolean elevate = Config.flag(cfg, "elevateToGlobal", elevateToGlobal);
+		Object defaultGroup = cfg.getOrDefault("group", group);
+
+		try {
+			RuleTable.forRules(cfg.getOrDefault("rules", rules).toString()).apply(ctx,
+					defaultGroup == null ? "" : defaultGroup.toString(), elevate);
+		} catch (JsonProcessingException e) {
+			throw new StepException(e.getMessage(), Switch.Causes.INVALID_JSON);
+		}
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.text.ParseException;
+import java.util.Map;
+
+import com.dtolabs.rundeck.core.common.INodeEntry;
+import com.dtolabs.rundeck.core.execution.workflow.steps.node.NodeStepException;
+import com.dtolabs.rundeck.core.plugins.Plugin;
+import com.dtolabs.rundeck.plugins.ServiceNameConstants;
+import com.dtolabs.rundeck.plugins.descriptions.PluginDescription;
+import com.dtolabs.rundeck.plugins.descriptions.PluginProperty;
+import com.dtolabs.rundeck.plugins.step.NodeStepPlugin;
+import com.dtolabs.rundeck.plugins.step.PluginStepContext;
+
+/**
+ * Workflow Node Step Plug-in to choose one of two values to uplift into a step
+ * variable based on a compound condition.
+ */
+@Plugin(name = IfExpressionNodeStepPlugin.SERVICE_PROVIDER_NAME, service = ServiceNameConstants.WorkflowNodeStep)
+@PluginDescription(title = "If-Else Expression Node Step", description = "Chooses between two options for a variable value based on a condition combining tests with &&, || and !.")
+public class IfExpressionNodeStepPlugin implements NodeStepPlugin {
+
+	public static final String SERVICE_PROVIDER_NAME = "com.bioraft.rundeck.conditional.IfExpressionNodeStepPlugin";
+
+	@PluginProperty(title = "Group", description = "Variable group (i.e., ${group.x}", required = true)
+	private String group;
+
+	@PluginProperty(title = "Name", description = "Variable name (i.e., ${group.name}", required = true)
+	private String name;
+
+	@PluginProperty(title = "Condition", description = "Tests combined with &&, || and ! (i.e., \"${option.env}\" eq \"prod\" && ${node.cpus} >= 8)", required = true)
+	private String condition;
+
+	@PluginProperty(title = "If True", description = "Value to assign if condition is true", required = true)
+	private String ifTrue;
+
+	@PluginProperty(title = "If False", description = "Value to assign if condition is false")
+	private String ifFalse;
+
+	@PluginProperty(title = "Make global?", description = "Elevate this variable to global scope (default: false)")
+	private boolean elevateToGlobal;
+
+	@Override
+	public void executeNodeStep(PluginStepContext ctx, Map<String, Object> cfg, INodeEntry node)
+			throws NodeStepException {
+
+		boolean elevate = Config.flag(cfg, "elevateToGlobal", elevateToGlobal);
+
+		StepLogger log = new StepLogger(ctx);
+		if (log.isDebugEnabled()) {
+			log.debug("Setting " + group + "." + name + " based on " + condition);
+		}
+
+		try {
+			(new IfElse(ctx, log)).setElevate(elevate).setCfg(cfg).ifExpression(group, name, condition, ifTrue, ifFalse);
+		} catch (ParseException e) {
+			throw new NodeStepException(e.getMessage(), Expression.Causes.INVALID_EXPRESSION, node.getNodename());
+		}
+	}
+
+}
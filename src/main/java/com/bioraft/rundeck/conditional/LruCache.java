@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small, thread-safe, size-bounded cache that evicts the least recently used
+ * entry once it is full. Hits, misses and evictions are counted; a named cache
+ * reports them through ConditionalMetrics.
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ */
+public class LruCache<K, V> implements CacheStats {
+
+	private final Map<K, V> map;
+
+	private long hits;
+
+	private long misses;
+
+	private long evictions;
+
+	/**
+	 * Constructor sets the maximum number of entries retained.
+	 *
+	 * @param capacity Maximum number of entries.
+	 */
+	public LruCache(final int capacity) {
+		this.map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				if (size() > capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Constructor sets the maximum number of entries retained and reports
+	 * statistics under a name.
+	 *
+	 * @param name     Cache name shown in the metrics.
+	 * @param capacity Maximum number of entries.
+	 */
+	public LruCache(final String name, final int capacity) {
+		this(capacity);
+		ConditionalMetrics.registerCache(name, this);
+	}
+
+	/**
+	 * Look up a cached value.
+	 *
+	 * @param key The cache key.
+	 * @return The cached value, or null if not present.
+	 */
+	public synchronized V get(K key) {
+		V value = map.get(key);
+		if (value == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return value;
+	}
+
+	/**
+	 * Store a value, evicting the eldest entry if the cache is full.
+	 *
+	 * @param key   The cache key.
+	 * @param value The value to cache.
+	 */
+	public synchronized void put(K key, V value) {
+		map.put(key, value);
+	}
+
+	@Override
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	@Override
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	@Override
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized int size() {
+		return map.size();
+	}
+
+	public synchronized void clear() {
+		map.clear();
+	}
+}
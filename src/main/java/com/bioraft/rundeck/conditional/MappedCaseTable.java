@@ -0,0 +1,377 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Exact-match switch cases read from a local table file, one case per line as
+ * a key and a value separated by a tab. Blank lines are ignored and, when a
+ * key is repeated, its first line wins.
+ *
+ * The file is compiled once into a sorted binary index that is memory-mapped
+ * and binary searched, so a lookup touches only a few pages and heap use does
+ * not depend on the size of the table. The index records the modification
+ * time and size of the file it was built from and is rebuilt when either
+ * changes.
+ *
+ * Only files under a directory named in the rundeck.conditional.casesDir
+ * system property are read. Indexes are written to a conditional-index
+ * subdirectory of the index directory, created readable only by the Rundeck
+ * user; an existing one that is not owned by that user or is open to others
+ * is refused rather than changed. An index that fails its bounds checks is
+ * rebuilt.
+ *
+ * Index layout: magic, version, source mtime, source size, entry count, then
+ * one offset per entry and the entries themselves, each a length-prefixed
+ * UTF-8 key and value, sorted by key bytes.
+ */
+public class MappedCaseTable implements CaseMatcher {
+
+	/**
+	 * System property naming the directories, separated by the path separator,
+	 * that cases files may be read from; cases files are refused if unset.
+	 */
+	public static final String CASES_DIR_PROPERTY = "rundeck.conditional.casesDir";
+
+	/**
+	 * System property naming the directory under which the conditional-index
+	 * directory is created.
+	 */
+	public static final String INDEX_DIR_PROPERTY = "rundeck.conditional.indexDir";
+
+	/** Name of the directory, created for the Rundeck user only, holding indexes. */
+	static final String INDEX_SUBDIR = "conditional-index";
+
+	/** Maximum number of open tables kept in memory. */
+	public static final int CACHE_SIZE = 64;
+
+	private static final int MAGIC = 0x52444358;
+
+	private static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4;
+
+	private static final LruCache<Path, MappedCaseTable> CACHE = new LruCache<>("casesFile", CACHE_SIZE);
+
+	private static volatile AllowedDirs allowedDirs;
+
+	private final long sourceModified;
+
+	private final long sourceSize;
+
+	private final MappedByteBuffer index;
+
+	private final int count;
+
+	private MappedCaseTable(long sourceModified, long sourceSize, MappedByteBuffer index) {
+		this.sourceModified = sourceModified;
+		this.sourceSize = sourceSize;
+		this.index = index;
+		this.count = index.getInt(HEADER_SIZE - 4);
+	}
+
+	/**
+	 * Get the table for a file, building or refreshing its index if the file
+	 * has changed since the index was built. Each call resolves the file and
+	 * reads its attributes, so callers share the table for the rest of an
+	 * execution step rather than calling this for every node.
+	 *
+	 * @param file The table file.
+	 * @return The table.
+	 * @throws IOException If the file is not in an allowed directory, cannot be
+	 *                     read or the index cannot be written.
+	 */
+	public static MappedCaseTable forFile(String file) throws IOException {
+		Path source;
+		try {
+			source = Paths.get(file).toRealPath();
+		} catch (InvalidPathException e) {
+			throw new IOException("Invalid cases file " + file + ".", e);
+		}
+		if (!isAllowed(source)) {
+			throw new IOException("Cases file " + file + " is not in a directory named by " + CASES_DIR_PROPERTY + ".");
+		}
+		BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+		long modified = attributes.lastModifiedTime().toMillis();
+		MappedCaseTable table = CACHE.get(source);
+		if (table == null || table.sourceModified != modified || table.sourceSize != attributes.size()) {
+			table = open(source, modified, attributes.size());
+			CACHE.put(source, table);
+		}
+		return table;
+	}
+
+	/**
+	 * Check that a resolved file is inside one of the allowed directories. The
+	 * directories are resolved once for each value of the property, and again
+	 * when a file is refused, in case a directory was created since.
+	 */
+	private static boolean isAllowed(Path source) {
+		String property = System.getProperty(CASES_DIR_PROPERTY);
+		if (property == null) {
+			return false;
+		}
+		AllowedDirs allowed = allowedDirs;
+		if (allowed == null || !allowed.property.equals(property)) {
+			allowed = allowedDirs = new AllowedDirs(property);
+		}
+		if (allowed.contains(source)) {
+			return true;
+		}
+		allowed = allowedDirs = new AllowedDirs(property);
+		return allowed.contains(source);
+	}
+
+	/** The allowed directories named by one value of the property, resolved. */
+	private static final class AllowedDirs {
+
+		final String property;
+
+		final List<Path> dirs = new ArrayList<>();
+
+		AllowedDirs(String property) {
+			this.property = property;
+			for (String dir : property.split(File.pathSeparator)) {
+				if (dir.trim().length() == 0) {
+					continue;
+				}
+				try {
+					dirs.add(Paths.get(dir.trim()).toRealPath());
+				} catch (IOException | InvalidPathException e) {
+					// A missing directory allows nothing.
+				}
+			}
+		}
+
+		boolean contains(Path source) {
+			for (Path dir : dirs) {
+				if (source.startsWith(dir)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private static MappedCaseTable open(Path source, long modified, long size) throws IOException {
+		Path indexFile = indexFile(source);
+		PrivateDirectory.secure(indexFile.getParent());
+		MappedByteBuffer buffer = Files.exists(indexFile) ? map(indexFile) : null;
+		if (buffer == null || !isValid(buffer, modified, size)) {
+			build(source, indexFile, modified, size);
+			buffer = map(indexFile);
+			if (!isValid(buffer, modified, size)) {
+				throw new IOException("Index of " + source + " changed while it was read.");
+			}
+		}
+		return new MappedCaseTable(modified, size, buffer);
+	}
+
+	static Path indexFile(Path source) {
+		String dir = System.getProperty(INDEX_DIR_PROPERTY);
+		Path base = dir != null && dir.length() > 0 ? Paths.get(dir)
+				: Paths.get(System.getProperty("user.home"), ".rundeck-conditional");
+		String name = UUID.nameUUIDFromBytes(source.toString().getBytes(StandardCharsets.UTF_8)) + ".idx";
+		return base.toAbsolutePath().normalize().resolve(INDEX_SUBDIR).resolve(name);
+	}
+
+	/**
+	 * Check the header and every offset and length in an index, so that
+	 * lookups cannot read outside it.
+	 */
+	static boolean isValid(MappedByteBuffer buffer, long modified, long size) {
+		int capacity = buffer.capacity();
+		if (capacity < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+				|| buffer.getLong(8) != modified || buffer.getLong(16) != size) {
+			return false;
+		}
+		int count = buffer.getInt(HEADER_SIZE - 4);
+		long position = HEADER_SIZE + 4L * count;
+		if (count < 0 || position > capacity) {
+			return false;
+		}
+		for (int i = 0; i < count; i++) {
+			if (buffer.getInt(HEADER_SIZE + 4 * i) != position) {
+				return false;
+			}
+			for (int field = 0; field < 2; field++) {
+				if (position + 4 > capacity) {
+					return false;
+				}
+				int length = buffer.getInt((int) position);
+				position += 4L + length;
+				if (length < 0 || position > capacity) {
+					return false;
+				}
+			}
+		}
+		return position == capacity;
+	}
+
+	private static MappedByteBuffer map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Index too large: " + file);
+			}
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	private static void build(Path source, Path indexFile, long modified, long size) throws IOException {
+		List<byte[][]> entries = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+			String line;
+			int number = 0;
+			while ((line = reader.readLine()) != null) {
+				number++;
+				if (line.trim().length() == 0) {
+					continue;
+				}
+				int tab = line.indexOf('\t');
+				if (tab < 0) {
+					throw new IOException("Line " + number + " of " + source + " has no tab between key and value.");
+				}
+				entries.add(new byte[][] { line.substring(0, tab).getBytes(StandardCharsets.UTF_8),
+						line.substring(tab + 1).getBytes(StandardCharsets.UTF_8) });
+			}
+		}
+		// Stable sort, so the first of several equal keys stays first.
+		entries.sort((a, b) -> compare(a[0], b[0]));
+		List<byte[][]> unique = new ArrayList<>(entries.size());
+		for (byte[][] entry : entries) {
+			if (unique.isEmpty() || compare(unique.get(unique.size() - 1)[0], entry[0]) != 0) {
+				unique.add(entry);
+			}
+		}
+
+		Path temp = Files.createTempFile(indexFile.getParent(), "index", ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeLong(modified);
+				out.writeLong(size);
+				out.writeInt(unique.size());
+				long position = HEADER_SIZE + 4L * unique.size();
+				for (byte[][] entry : unique) {
+					if (position > Integer.MAX_VALUE) {
+						throw new IOException("Table too large: " + source);
+					}
+					out.writeInt((int) position);
+					position += 8 + entry[0].length + entry[1].length;
+				}
+				for (byte[][] entry : unique) {
+					out.writeInt(entry[0].length);
+					out.write(entry[0]);
+					out.writeInt(entry[1].length);
+					out.write(entry[1]);
+				}
+			}
+			Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private static int compare(byte[] a, byte[] b) {
+		int n = Math.min(a.length, b.length);
+		for (int i = 0; i < n; i++) {
+			int diff = (a[i] & 0xff) - (b[i] & 0xff);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return a.length - b.length;
+	}
+
+	/**
+	 * Find the value of a key.
+	 *
+	 * @throws UncheckedIOException If the index was changed on disk after it
+	 *                              was checked.
+	 */
+	@Override
+	public CaseResult find(String test) {
+		try {
+			return search(test);
+		} catch (IndexOutOfBoundsException e) {
+			throw new UncheckedIOException(new IOException("Index changed while it was read.", e));
+		}
+	}
+
+	private CaseResult search(String test) {
+		byte[] key = test.getBytes(StandardCharsets.UTF_8);
+		int lo = 0;
+		int hi = count - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int position = index.getInt(HEADER_SIZE + 4 * mid);
+			int diff = compareKey(position, key);
+			if (diff < 0) {
+				lo = mid + 1;
+			} else if (diff > 0) {
+				hi = mid - 1;
+			} else {
+				return CaseResult.of(readValue(position + 4 + key.length));
+			}
+		}
+		return null;
+	}
+
+	/** Compare the key stored at a position with the given key, using only absolute reads. */
+	private int compareKey(int position, byte[] key) {
+		int length = index.getInt(position);
+		int n = Math.min(length, key.length);
+		for (int i = 0; i < n; i++) {
+			int diff = (index.get(position + 4 + i) & 0xff) - (key[i] & 0xff);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return length - key.length;
+	}
+
+	private String readValue(int position) {
+		byte[] value = new byte[index.getInt(position)];
+		for (int i = 0; i < value.length; i++) {
+			value[i] = index.get(position + 4 + i);
+		}
+		return new String(value, StandardCharsets.UTF_8);
+	}
+
+	public int size() {
+		return count;
+	}
+}
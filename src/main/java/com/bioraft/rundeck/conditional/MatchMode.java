@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * How switch case keys are matched against the test value.
+ *
+ * Compiled cases are cached per mode by the raw cases string so that repeated
+ * evaluations of the same step, or of the same step on many nodes, parse and
+ * compile the cases only once.
+ */
+public enum MatchMode {
+
+	EXACT(Switch.MODE_EXACT) {
+		@Override
+		CaseMatcher compile(CaseEntries entries) {
+			return new CaseTable(entries);
+		}
+	},
+	REGEX(Switch.MODE_REGEX) {
+		@Override
+		CaseMatcher compile(CaseEntries entries) {
+			return new RegexCaseTable(entries);
+		}
+	},
+	RANGE(Switch.MODE_RANGE) {
+		@Override
+		CaseMatcher compile(CaseEntries entries) {
+			return new RangeCaseTable(entries);
+		}
+	},
+	PREFIX(Switch.MODE_PREFIX) {
+		@Override
+		CaseMatcher compile(CaseEntries entries) {
+			return new TrieCaseTable(entries, false);
+		}
+	},
+	SUFFIX(Switch.MODE_SUFFIX) {
+		@Override
+		CaseMatcher compile(CaseEntries entries) {
+			return new TrieCaseTable(entries, true);
+		}
+	},
+	GLOB(Switch.MODE_GLOB) {
+		@Override
+		CaseMatcher compile(CaseEntries entries) {
+			return new GlobCaseTable(entries);
+		}
+	};
+
+	/** Maximum number of compiled case tables kept in memory for each mode. */
+	public static final int CACHE_SIZE = 256;
+
+	private final String label;
+
+	private final LruCache<String, CaseMatcher> cache;
+
+	/** This mode's forCases, for sharing compiled cases without a new lambda per call. */
+	final ExecutionScope.Compiler<CaseMatcher, JsonProcessingException> compiler = this::forCases;
+
+	MatchMode(String label) {
+		this.label = label;
+		this.cache = new LruCache<>("cases." + label, CACHE_SIZE);
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * Resolve a mode from its label; an empty label means exact matching.
+	 *
+	 * @param label The mode label.
+	 * @return The mode.
+	 * @throws IllegalArgumentException If the label is not a known mode.
+	 */
+	public static MatchMode fromLabel(String label) {
+		if (label == null || label.length() == 0) {
+			return EXACT;
+		}
+		for (MatchMode mode : values()) {
+			if (mode.label.equals(label)) {
+				return mode;
+			}
+		}
+		throw new IllegalArgumentException("Unknown match mode: " + label);
+	}
+
+	/**
+	 * Get the compiled cases for a cases string, compiling them on first use.
+	 *
+	 * @param cases The switch cases as members of a JSON object.
+	 * @return The compiled cases.
+	 * @throws JsonProcessingException  If the cases cannot be parsed.
+	 * @throws IllegalArgumentException If a case key is invalid for this mode.
+	 */
+	public CaseMatcher forCases(String cases) throws JsonProcessingException {
+		CaseMatcher matcher = cache.get(cases);
+		if (matcher == null) {
+			matcher = compile(DiskCache.get("cases", cases, CaseEntries.CODEC, CaseEntries::parse));
+			cache.put(cases, matcher);
+		}
+		return matcher;
+	}
+
+	abstract CaseMatcher compile(CaseEntries entries);
+
+	void clearCache() {
+		cache.clear();
+	}
+}
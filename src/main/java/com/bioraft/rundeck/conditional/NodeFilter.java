@@ -0,0 +1,161 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import com.dtolabs.rundeck.core.common.INodeEntry;
+import com.dtolabs.rundeck.core.execution.workflow.steps.FailureReason;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Selects nodes by testing one of their attributes, either with an if/else
+ * comparison or by looking it up in a table of switch cases.
+ *
+ * Nodes are tested on the server, from the attributes Rundeck already holds,
+ * so selecting them opens no connection to any node.
+ */
+public class NodeFilter {
+
+	/** Case value that selects a node when its attribute matches the case. */
+	public static final String SELECTED = "true";
+
+	/** Node filter that matches no node: a regular expression that cannot match. */
+	public static final String NO_NODES = "name: (?!)";
+
+	private final String attribute;
+
+	private final Comparison comparison;
+
+	private final CaseMatcher cases;
+
+	private NodeFilter(String attribute, Comparison comparison, CaseMatcher cases) {
+		this.attribute = attribute;
+		this.comparison = comparison;
+		this.cases = cases;
+	}
+
+	/**
+	 * Select nodes whose attribute passes a comparison.
+	 *
+	 * @param attribute       The node attribute to test.
+	 * @param operator        The comparison operator.
+	 * @param comparisonValue The value to test against.
+	 * @return The filter.
+	 */
+	public static NodeFilter comparing(String attribute, Operator operator, String comparisonValue) {
+		return new NodeFilter(attribute, Comparison.of(operator, comparisonValue), null);
+	}
+
+	/**
+	 * Select nodes whose attribute matches a case with the value "true".
+	 *
+	 * @param attribute The node attribute to test.
+	 * @param mode      How case keys are matched.
+	 * @param cases     The switch cases.
+	 * @return The filter.
+	 * @throws JsonProcessingException If the cases cannot be parsed.
+	 */
+	public static NodeFilter lookingUp(String attribute, MatchMode mode, String cases) throws JsonProcessingException {
+		return new NodeFilter(attribute, null, mode.forCases(cases));
+	}
+
+	/**
+	 * Test one node.
+	 *
+	 * @param node The node.
+	 * @return True if the node is selected.
+	 */
+	public boolean accepts(INodeEntry node) {
+		Map<String, String> attributes = node.getAttributes();
+		String value = attributes == null ? null : attributes.get(attribute);
+		if (value == null) {
+			value = "";
+		}
+		if (comparison != null) {
+			return comparison.test(value);
+		}
+		CaseResult result = cases.find(value);
+		return result != null && SELECTED.equals(result.getValue());
+	}
+
+	/**
+	 * Select nodes.
+	 *
+	 * @param nodes The nodes to test.
+	 * @return Names of the selected nodes, in the order given.
+	 */
+	public List<String> select(Iterable<INodeEntry> nodes) {
+		List<String> names = new ArrayList<>();
+		if (nodes != null) {
+			for (INodeEntry node : nodes) {
+				if (accepts(node)) {
+					names.add(node.getNodename());
+				}
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Build a Rundeck node filter that matches nodes by name, e.g.
+	 * "name: web-01,web-02\.example\.com".
+	 *
+	 * Rundeck matches each name either exactly or as a regular expression, so
+	 * every character other than a letter, digit, "-" or "_" is escaped for the
+	 * regular expression, which also keeps commas, spaces and quotes out of the
+	 * filter. With no names, the filter matches no node, so that a job
+	 * reference step using it runs nowhere rather than on its default nodes.
+	 *
+	 * @param names The node names.
+	 * @return The node filter.
+	 */
+	public static String filterString(Collection<String> names) {
+		if (names.isEmpty()) {
+			return NO_NODES;
+		}
+		StringBuilder builder = new StringBuilder("name: ");
+		boolean first = true;
+		for (String name : names) {
+			if (!first) {
+				builder.append(',');
+			}
+			first = false;
+			appendEscaped(builder, name);
+		}
+		return builder.toString();
+	}
+
+	private static void appendEscaped(StringBuilder builder, String name) {
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '_') {
+				builder.append(c);
+			} else if (c == '.') {
+				builder.append("\\.");
+			} else {
+				builder.append("\\x{").append(Integer.toHexString(c)).append('}');
+			}
+		}
+	}
+
+	enum Causes implements FailureReason {
+		NO_CONDITION, INVALID_OPERATOR
+	}
+}
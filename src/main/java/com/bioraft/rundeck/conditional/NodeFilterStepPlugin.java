@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.util.List;
+import java.util.Map;
+
+import com.dtolabs.rundeck.core.common.INodeSet;
+import com.dtolabs.rundeck.core.execution.workflow.steps.StepException;
+import com.dtolabs.rundeck.core.plugins.Plugin;
+import com.dtolabs.rundeck.core.plugins.configuration.Describable;
+import com.dtolabs.rundeck.core.plugins.configuration.Description;
+import com.dtolabs.rundeck.plugins.ServiceNameConstants;
+import com.dtolabs.rundeck.plugins.descriptions.PluginDescription;
+import com.dtolabs.rundeck.plugins.descriptions.PluginProperty;
+import com.dtolabs.rundeck.plugins.descriptions.RenderingOption;
+import com.dtolabs.rundeck.plugins.descriptions.RenderingOptions;
+import com.dtolabs.rundeck.plugins.descriptions.SelectValues;
+import com.dtolabs.rundeck.plugins.step.PluginStepContext;
+import com.dtolabs.rundeck.plugins.step.StepPlugin;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import static com.dtolabs.rundeck.core.plugins.configuration.StringRenderingConstants.CODE_SYNTAX_MODE;
+import static com.dtolabs.rundeck.core.plugins.configuration.StringRenderingConstants.DISPLAY_TYPE_KEY;
+
+/**
+ * Workflow Step Plug-in that tests an attribute of each of the job's nodes on
+ * the server and sets a variable to a node filter naming the nodes that pass,
+ * for use by a later job reference step.
+ */
+@Plugin(name = NodeFilterStepPlugin.SERVICE_PROVIDER_NAME, service = ServiceNameConstants.WorkflowStep)
+@PluginDescription(title = "Conditional Node Filter", description = "Sets a variable to a node filter selecting the job's nodes whose attribute passes an if-else test or matches a switch case.")
+public class NodeFilterStepPlugin implements StepPlugin, Describable {
+
+	public static final String SERVICE_PROVIDER_NAME = "com.bioraft.rundeck.conditional.NodeFilterStepPlugin";
+
+	@PluginProperty(title = "Group", description = "Variable group (i.e., ${group.x}", required = true)
+	private String group;
+
+	@PluginProperty(title = "Name", description = "Variable name (i.e., ${group.name}", required = true)
+	private String name;
+
+	@PluginProperty(title = "Attribute", description = "Node attribute to test, e.g. osFamily or tags", required = true)
+	private String attribute;
+
+	@PluginProperty(title = "Operator", description = "Comparison operator")
+	private String operator;
+
+	@PluginProperty(title = "Comparison Value", description = "Value to compare the attribute with")
+	private String comparisonValue;
+
+	@PluginProperty(title = "Cases", description = "Used instead of a comparison: switch cases whose value is \"true\" for attribute values that select the node")
+	@RenderingOptions({
+			@RenderingOption(key = DISPLAY_TYPE_KEY, value = "CODE"),
+			@RenderingOption(key = CODE_SYNTAX_MODE, value = "json"),
+	})
+	private String cases;
+
+	@PluginProperty(title = "Match Mode", description = "How cases are matched (default: exact)", defaultValue = Switch.MODE_EXACT)
+	@SelectValues(values = { Switch.MODE_EXACT, Switch.MODE_REGEX, Switch.MODE_RANGE, Switch.MODE_PREFIX,
+			Switch.MODE_SUFFIX, Switch.MODE_GLOB })
+	private String matchMode;
+
+	@PluginProperty(title = "Make global?", description = "Elevate this variable to global scope (default: false)")
+	private boolean elevateToGlobal;
+
+	@Override
+	public Description getDescription() {
+		return Operator.describe(this, false);
+	}
+
+	@Override
+	public void executeStep(final PluginStepContext ctx, final Map<String, Object> cfg) throws StepException {
+
+		boolean elevate = Config.flag(cfg, "elevateToGlobal", elevateToGlobal);
+		String groupValue = cfg.getOrDefault("group", group).toString();
+		String nameValue = cfg.getOrDefault("name", name).toString();
+		String attributeValue = cfg.getOrDefault("attribute", attribute).toString();
+		String casesValue = String.valueOf(cfg.getOrDefault("cases", cases == null ? "" : cases));
+		String operatorValue = String.valueOf(cfg.getOrDefault("operator", operator == null ? "" : operator));
+		String mode = String.valueOf(cfg.getOrDefault("matchMode", matchMode == null ? "" : matchMode));
+
+		NodeFilter filter;
+		try {
+			if (casesValue.length() > 0) {
+				filter = NodeFilter.lookingUp(attributeValue, MatchMode.fromLabel(mode), casesValue);
+			} else if (operatorValue.length() > 0) {
+				Operator resolved = Operator.fromLabel(operatorValue);
+				if (resolved == null) {
+					throw new StepException("Unknown operator: " + operatorValue, NodeFilter.Causes.INVALID_OPERATOR);
+				}
+				Object value = cfg.getOrDefault("comparisonValue", comparisonValue);
+				filter = NodeFilter.comparing(attributeValue, resolved, value == null ? "" : value.toString());
+			} else {
+				throw new StepException("Either an operator or cases are required.", NodeFilter.Causes.NO_CONDITION);
+			}
+		} catch (JsonProcessingException e) {
+			throw new StepException(e.getMessage(), Switch.Causes.INVALID_JSON);
+		} catch (IllegalArgumentException e) {
+			throw new StepException(e.getMessage(), Switch.Causes.INVALID_CASE);
+		}
+
+		INodeSet nodes = ctx.getNodes();
+		List<String> selected = filter.select(nodes);
+		StepLogger log = new StepLogger(ctx);
+		log.debug(() -> "Selected " + selected.size() + " of " + (nodes == null ? 0 : nodes.getNodes().size())
+				+ " nodes.");
+		Outputs.add(ctx, log, elevate, groupValue, nameValue, NodeFilter.filterString(selected));
+	}
+
+}
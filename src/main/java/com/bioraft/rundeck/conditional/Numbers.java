@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+/**
+ * Exception-free recognition and parsing of decimal numbers.
+ *
+ * Accepts what Double.parseDouble() accepts for decimal input: surrounding
+ * whitespace, an optional sign, digits with an optional fraction and
+ * exponent, an optional f/F/d/D suffix, and "Infinity" without a suffix.
+ * Hexadecimal floating point and "NaN" are not treated as numbers.
+ */
+public class Numbers {
+
+	/** Largest mantissa that a double represents exactly (2^53). */
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	/** Powers of ten that a double represents exactly. */
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private Numbers() {
+	}
+
+	/**
+	 * Determine whether a string is a number.
+	 *
+	 * @param value The string to examine.
+	 * @return True if parse() would return a number.
+	 */
+	public static boolean isNumber(String value) {
+		return !Double.isNaN(parse(value));
+	}
+
+	/**
+	 * Parse a string as a number without throwing.
+	 *
+	 * Integers of up to 17 digits are accumulated in a long, and decimals of up
+	 * to 15 significant digits with small exponents are scaled by an exact
+	 * power of ten; other numbers are handed to Double.parseDouble() once they
+	 * are known to be valid. In every case the result is the same as
+	 * Double.parseDouble() would return.
+	 *
+	 * @param value The string to parse.
+	 * @return The number, or NaN if the string is not a number.
+	 */
+	public static double parse(String value) {
+		if (value == null) {
+			return Double.NaN;
+		}
+		int end = value.length();
+		int i = 0;
+		while (i < end && value.charAt(i) <= ' ') {
+			i++;
+		}
+		while (end > i && value.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		boolean suffix = i < end && "fFdD".indexOf(value.charAt(end - 1)) >= 0;
+		if (suffix) {
+			end--;
+		}
+
+		boolean negative = false;
+		if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+			negative = value.charAt(i) == '-';
+			i++;
+		}
+		if (i == end) {
+			return Double.NaN;
+		}
+		if (value.charAt(i) == 'I') {
+			// Double.parseDouble() rejects a type suffix after Infinity.
+			return !suffix && value.regionMatches(i, "Infinity", 0, end - i) && end - i == 8
+					? (negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY)
+					: Double.NaN;
+		}
+
+		long mantissa = 0;
+		int significantDigits = 0;
+		int fractionDigits = 0;
+		boolean digits = false;
+		boolean fraction = false;
+		for (; i < end; i++) {
+			char c = value.charAt(i);
+			if (c >= '0' && c <= '9') {
+				digits = true;
+				if (significantDigits < 18) {
+					if (mantissa != 0 || c != '0') {
+						significantDigits++;
+					}
+					mantissa = mantissa * 10 + (c - '0');
+					if (fraction) {
+						fractionDigits++;
+					}
+				} else {
+					significantDigits++;
+				}
+			} else if (c == '.' && !fraction) {
+				fraction = true;
+			} else {
+				break;
+			}
+		}
+		if (!digits) {
+			return Double.NaN;
+		}
+
+		int exponent = 0;
+		if (i < end) {
+			char c = value.charAt(i);
+			if (c != 'e' && c != 'E') {
+				return Double.NaN;
+			}
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+				negativeExponent = value.charAt(i) == '-';
+				i++;
+			}
+			if (i == end) {
+				return Double.NaN;
+			}
+			for (; i < end; i++) {
+				c = value.charAt(i);
+				if (c < '0' || c > '9') {
+					return Double.NaN;
+				}
+				if (exponent < 100000) {
+					exponent = exponent * 10 + (c - '0');
+				}
+			}
+			if (negativeExponent) {
+				exponent = -exponent;
+			}
+		}
+
+		if (significantDigits >= 18) {
+			return Double.parseDouble(value);
+		}
+		int scale = exponent - fractionDigits;
+		double result;
+		if (scale == 0) {
+			result = mantissa;
+		} else if (mantissa < MAX_EXACT_MANTISSA && scale > 0 && scale < POWERS_OF_TEN.length) {
+			result = mantissa * POWERS_OF_TEN[scale];
+		} else if (mantissa < MAX_EXACT_MANTISSA && scale < 0 && -scale < POWERS_OF_TEN.length) {
+			result = mantissa / POWERS_OF_TEN[-scale];
+		} else {
+			return Double.parseDouble(value);
+		}
+		return negative ? -result : result;
+	}
+}
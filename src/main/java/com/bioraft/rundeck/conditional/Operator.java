@@ -0,0 +1,269 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import com.dtolabs.rundeck.core.plugins.PluginAdapterUtility;
+import com.dtolabs.rundeck.core.plugins.configuration.Description;
+import com.dtolabs.rundeck.core.plugins.configuration.Property;
+import com.dtolabs.rundeck.plugins.util.DescriptionBuilder;
+import com.dtolabs.rundeck.plugins.util.PropertyBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Comparison operators understood by IfElse, each carrying its own test.
+ *
+ * This enum is the registry of operators: the operator select lists shown by
+ * the if/else plugins are generated from it.
+ */
+public enum Operator {
+
+	STRING_EQ(IfElse.STRING_EQ, false) {
+		@Override
+		public boolean test(String testValue, String comparisonValue) {
+			return testValue.equals(comparisonValue);
+		}
+	},
+	STRING_NE(IfElse.STRING_NE, false) {
+		@Override
+		public boolean test(String testValue, String comparisonValue) {
+			return !testValue.equals(comparisonValue);
+		}
+	},
+	STRING_LT(IfElse.STRING_LT, false) {
+		@Override
+		public boolean test(String testValue, String comparisonValue) {
+			return testValue.compareTo(comparisonValue) < 0;
+		}
+	},
+	STRING_LE(IfElse.STRING_LE, false) {
+		@Override
+		public boolean test(String testValue, String comparisonValue) {
+			return testValue.compareTo(comparisonValue) <= 0;
+		}
+	},
+	STRING_GE(IfElse.STRING_GE, false) {
+		@Override
+		public boolean test(String testValue, String comparisonValue) {
+			return testValue.compareTo(comparisonValue) >= 0;
+		}
+	},
+	STRING_GT(IfElse.STRING_GT, false) {
+		@Override
+		public boolean test(String testValue, String comparisonValue) {
+			return testValue.compareTo(comparisonValue) > 0;
+		}
+	},
+	STRING_BEG(IfElse.STRING_BEG, false) {
+		@Override
+		public boolean test(String testValue, String comparisonValue) {
+			return testValue.startsWith(comparisonValue);
+		}
+	},
+	STRING_END(IfElse.STRING_END, false) {
+		@Override
+		public boolean test(String testValue, String comparisonValue) {
+			return testValue.endsWith(comparisonValue);
+		}
+	},
+	STRING_MATCH(IfElse.STRING_MATCH, false) {
+		@Override
+		public boolean test(String testValue, String comparisonValue) {
+			try {
+				return Patterns.compile(comparisonValue).matcher(testValue).find();
+			} catch (PatternSyntaxException e) {
+				return false;
+			}
+		}
+	},
+	NUMBER_EQ(IfElse.NUMBER_EQ, true) {
+		@Override
+		public boolean compare(double testValue, double comparisonValue) {
+			return testValue == comparisonValue;
+		}
+	},
+	NUMBER_NE(IfElse.NUMBER_NE, true) {
+		@Override
+		public boolean compare(double testValue, double comparisonValue) {
+			return testValue != comparisonValue;
+		}
+	},
+	NUMBER_LT(IfElse.NUMBER_LT, true) {
+		@Override
+		public boolean compare(double testValue, double comparisonValue) {
+			return testValue < comparisonValue;
+		}
+	},
+	NUMBER_LE(IfElse.NUMBER_LE, true) {
+		@Override
+		public boolean compare(double testValue, double comparisonValue) {
+			return testValue <= comparisonValue;
+		}
+	},
+	NUMBER_GE(IfElse.NUMBER_GE, true) {
+		@Override
+		public boolean compare(double testValue, double comparisonValue) {
+			return testValue >= comparisonValue;
+		}
+	},
+	NUMBER_GT(IfElse.NUMBER_GT, true) {
+		@Override
+		public boolean compare(double testValue, double comparisonValue) {
+			return testValue > comparisonValue;
+		}
+	};
+
+	private static final Map<String, Operator> BY_LABEL = new HashMap<>();
+
+	private static final List<String> LABELS;
+
+	static {
+		List<String> labels = new ArrayList<>();
+		for (Operator operator : values()) {
+			BY_LABEL.put(operator.label, operator);
+			labels.add(operator.label);
+		}
+		LABELS = Collections.unmodifiableList(labels);
+	}
+
+	private final String label;
+
+	private final boolean numeric;
+
+	Operator(String label, boolean numeric) {
+		this.label = label;
+		this.numeric = numeric;
+	}
+
+	/**
+	 * The operator as it appears in step configuration.
+	 *
+	 * @return The operator label.
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	@Override
+	public String toString() {
+		return label;
+	}
+
+	/**
+	 * Whether this operator compares its operands as numbers.
+	 *
+	 * @return True for numeric operators.
+	 */
+	public boolean isNumeric() {
+		return numeric;
+	}
+
+	/**
+	 * Resolve an operator from its label.
+	 *
+	 * @param label The operator label, e.g. "eq" or "&gt;=".
+	 * @return The operator, or null if the label is not a known operator.
+	 */
+	public static Operator fromLabel(String label) {
+		return BY_LABEL.get(label);
+	}
+
+	/**
+	 * Labels of all operators, in the order they are offered to users.
+	 *
+	 * @return Unmodifiable list of labels.
+	 */
+	public static List<String> labels() {
+		return LABELS;
+	}
+
+	/**
+	 * Build the operator select property for a plugin description.
+	 *
+	 * @return The operator property.
+	 */
+	public static Property selectProperty() {
+		return selectProperty(true);
+	}
+
+	/**
+	 * Build the operator select property for a plugin description.
+	 *
+	 * @param required Whether an operator must be chosen.
+	 * @return The operator property.
+	 */
+	public static Property selectProperty(boolean required) {
+		return PropertyBuilder.builder().select("operator").title("Operator").description("Comparison operator")
+				.required(required).values(LABELS).build();
+	}
+
+	/**
+	 * Build a plugin description from the plugin's annotations, replacing its
+	 * "operator" property with a select list of the registered operators.
+	 *
+	 * @param plugin The annotated plugin instance.
+	 * @return The plugin description.
+	 */
+	public static Description describe(Object plugin) {
+		return describe(plugin, true);
+	}
+
+	/**
+	 * Build a plugin description from the plugin's annotations, replacing its
+	 * "operator" property with a select list of the registered operators.
+	 *
+	 * @param plugin   The annotated plugin instance.
+	 * @param required Whether an operator must be chosen.
+	 * @return The plugin description.
+	 */
+	public static Description describe(Object plugin, boolean required) {
+		DescriptionBuilder builder = DescriptionBuilder.builder();
+		PluginAdapterUtility.buildDescription(plugin, builder);
+		return builder.property(selectProperty(required)).build();
+	}
+
+	/**
+	 * Apply this operator to two values.
+	 *
+	 * Numeric operators compare the values as numbers and never match when
+	 * either value is not a number.
+	 *
+	 * @param testValue       The value to test.
+	 * @param comparisonValue The value to test against.
+	 * @return True if the comparison holds.
+	 */
+	public boolean test(String testValue, String comparisonValue) {
+		double testNumber = Numbers.parse(testValue);
+		double comparisonNumber = Numbers.parse(comparisonValue);
+		return !Double.isNaN(testNumber) && !Double.isNaN(comparisonNumber) && compare(testNumber, comparisonNumber);
+	}
+
+	/**
+	 * Apply a numeric operator to two numbers.
+	 *
+	 * @param testValue       The value to test.
+	 * @param comparisonValue The value to test against.
+	 * @return True if the comparison holds; always false for string operators.
+	 */
+	public boolean compare(double testValue, double comparisonValue) {
+		return false;
+	}
+}
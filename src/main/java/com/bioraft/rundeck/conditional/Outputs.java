@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import com.dtolabs.rundeck.core.dispatcher.ContextView;
+import com.dtolabs.rundeck.plugins.step.PluginStepContext;
+
+/**
+ * Writes step variables to the shared output context.
+ */
+public class Outputs {
+
+	private Outputs() {
+	}
+
+	/**
+	 * Adds output to shared context, also elevating to global if requested.
+	 *
+	 * @param ctx     Plugin step context.
+	 * @param log     Logger for the step.
+	 * @param elevate Elevate to global context?
+	 * @param group   Variable group.
+	 * @param name    Variable name.
+	 * @param value   Variable value.
+	 */
+	public static void add(PluginStepContext ctx, StepLogger log, boolean elevate, String group, String name,
+			String value) {
+		ctx.getOutputContext().addOutput(group, name, value);
+		if (elevate) {
+			String groupName = group + "." + name;
+			ctx.getOutputContext().addOutput(ContextView.global(), "export", groupName, value);
+			if (log.isDebugEnabled()) {
+				log.debug("Elevating to globsal ${export." + groupName + "}.");
+			}
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.util.regex.Pattern;
+
+/**
+ * Compiles regular expressions, keeping recently used patterns so that a
+ * pattern used by many steps and nodes is compiled only once.
+ */
+public class Patterns {
+
+	/** Maximum number of compiled patterns kept in memory. */
+	public static final int CACHE_SIZE = 512;
+
+	private static final LruCache<String, Pattern> CACHE = new LruCache<>("pattern", CACHE_SIZE);
+
+	private Patterns() {
+	}
+
+	/**
+	 * Get the compiled form of a regular expression.
+	 *
+	 * @param regex The regular expression.
+	 * @return The compiled pattern.
+	 * @throws java.util.regex.PatternSyntaxException If the expression is
+	 *                                                invalid.
+	 */
+	public static Pattern compile(String regex) {
+		Pattern pattern = CACHE.get(regex);
+		if (pattern == null) {
+			pattern = Pattern.compile(regex);
+			CACHE.put(regex, pattern);
+		}
+		return pattern;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Directories of files that are read back as trusted, such as case indexes
+ * and cached configuration, which must be writable only by the Rundeck user.
+ */
+final class PrivateDirectory {
+
+	private static final Set<PosixFilePermission> OWNER_ONLY = EnumSet.of(PosixFilePermission.OWNER_READ,
+			PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE);
+
+	private PrivateDirectory() {
+	}
+
+	/**
+	 * Create a directory readable only by its owner, or check that an existing
+	 * one is owned by this user and closed to everyone else. Its parents are
+	 * created as usual, and nothing that exists is changed.
+	 *
+	 * @param dir The directory.
+	 * @throws IOException If the directory cannot be created, or exists but is
+	 *                     not owned by this user or is open to others.
+	 */
+	static void secure(Path dir) throws IOException {
+		Files.createDirectories(dir.getParent());
+		if (!Files.getFileStore(dir.getParent()).supportsFileAttributeView(PosixFileAttributeView.class)) {
+			Files.createDirectories(dir);
+			return;
+		}
+		try {
+			Files.createDirectory(dir, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+		} catch (FileAlreadyExistsException e) {
+			// Checked below like any directory this user did not just create.
+		}
+		PosixFileAttributes attributes = Files.readAttributes(dir, PosixFileAttributes.class,
+				LinkOption.NOFOLLOW_LINKS);
+		UserPrincipal user = dir.getFileSystem().getUserPrincipalLookupService()
+				.lookupPrincipalByName(System.getProperty("user.name"));
+		if (!attributes.isDirectory() || !attributes.owner().equals(user)
+				|| !OWNER_ONLY.containsAll(attributes.permissions())) {
+			throw new IOException(dir + " must be a directory owned by " + user.getName()
+					+ " and closed to others; correct its permissions or remove it.");
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Switch cases whose keys are numeric intervals such as "[0,50)", "[50,90)"
+ * and "[90,]". A square bracket includes the bound and a parenthesis excludes
+ * it; an empty bound is unbounded.
+ *
+ * Intervals are sorted by their lower bound into primitive arrays and must not
+ * overlap, so a test value is matched by a single binary search.
+ */
+public class RangeCaseTable implements CaseMatcher {
+
+	private final double[] lows;
+
+	private final boolean[] lowClosed;
+
+	private final double[] highs;
+
+	private final boolean[] highClosed;
+
+	private final CaseResult[] results;
+
+	/**
+	 * Compile the case keys as intervals.
+	 *
+	 * @param entries The parsed cases.
+	 * @throws IllegalArgumentException If a key is not a valid interval, or
+	 *                                  two intervals overlap.
+	 */
+	public RangeCaseTable(CaseEntries entries) {
+		int size = entries.size();
+		Interval[] intervals = new Interval[size];
+		for (int i = 0; i < size; i++) {
+			intervals[i] = Interval.parse(entries.getKey(i), entries.getResult(i));
+		}
+		Arrays.sort(intervals, Interval.ORDER);
+
+		lows = new double[size];
+		lowClosed = new boolean[size];
+		highs = new double[size];
+		highClosed = new boolean[size];
+		results = new CaseResult[size];
+		for (int i = 0; i < size; i++) {
+			Interval interval = intervals[i];
+			if (i > 0 && intervals[i - 1].overlaps(interval)) {
+				throw new IllegalArgumentException(
+						"Range " + intervals[i - 1].key + " overlaps range " + interval.key + ".");
+			}
+			lows[i] = interval.low;
+			lowClosed[i] = interval.lowClosed;
+			highs[i] = interval.high;
+			highClosed[i] = interval.highClosed;
+			results[i] = interval.result;
+		}
+	}
+
+	@Override
+	public CaseResult find(String test) {
+		double value = Numbers.parse(test);
+		if (Double.isNaN(value)) {
+			return null;
+		}
+
+		// Find the last interval whose lower bound admits the value.
+		int lo = 0;
+		int hi = lows.length - 1;
+		int found = -1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (lows[mid] < value || (lows[mid] == value && lowClosed[mid])) {
+				found = mid;
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		if (found >= 0 && (value < highs[found] || (value == highs[found] && highClosed[found]))) {
+			return results[found];
+		}
+		return null;
+	}
+
+	public int size() {
+		return results.length;
+	}
+
+	private static class Interval {
+
+		static final Comparator<Interval> ORDER = (a, b) -> {
+			int byLow = Double.compare(a.low, b.low);
+			if (byLow != 0) {
+				return byLow;
+			}
+			return Boolean.compare(b.lowClosed, a.lowClosed);
+		};
+
+		final String key;
+		final double low;
+		final boolean lowClosed;
+		final double high;
+		final boolean highClosed;
+		final CaseResult result;
+
+		private Interval(String key, double low, boolean lowClosed, double high, boolean highClosed,
+				CaseResult result) {
+			this.key = key;
+			this.low = low;
+			this.lowClosed = lowClosed;
+			this.high = high;
+			this.highClosed = highClosed;
+			this.result = result;
+		}
+
+		static Interval parse(String key, CaseResult result) {
+			String trimmed = key.trim();
+			int comma = trimmed.indexOf(',');
+			if (trimmed.length() < 3 || comma < 0) {
+				throw invalid(key);
+			}
+			char open = trimmed.charAt(0);
+			char close = trimmed.charAt(trimmed.length() - 1);
+			if ((open != '[' && open != '(') || (close != ']' && close != ')')) {
+				throw invalid(key);
+			}
+			double low = bound(trimmed.substring(1, comma), Double.NEGATIVE_INFINITY, key);
+			double high = bound(trimmed.substring(comma + 1, trimmed.length() - 1), Double.POSITIVE_INFINITY, key);
+			boolean lowClosed = open == '[';
+			boolean highClosed = close == ']';
+			if (low > high || (low == high && !(lowClosed && highClosed))) {
+				throw new IllegalArgumentException("Range " + key + " is empty.");
+			}
+			return new Interval(key, low, lowClosed, high, highClosed, result);
+		}
+
+		private static double bound(String text, double unbounded, String key) {
+			if (text.trim().length() == 0) {
+				return unbounded;
+			}
+			double value = Numbers.parse(text);
+			if (Double.isNaN(value)) {
+				throw invalid(key);
+			}
+			return value;
+		}
+
+		private static IllegalArgumentException invalid(String key) {
+			return new IllegalArgumentException("Invalid range: " + key);
+		}
+
+		/** True if this interval, which sorts first, overlaps the next. */
+		boolean overlaps(Interval next) {
+			return high > next.low || (high == next.low && highClosed && next.lowClosed);
+		}
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.util.regex.Pattern;
+
+/**
+ * Switch cases whose keys are regular expressions. The first case, in the
+ * order given, whose pattern is found in the test value wins.
+ */
+public class RegexCaseTable implements CaseMatcher {
+
+	private final Pattern[] patterns;
+
+	private final CaseResult[] results;
+
+	/**
+	 * Compile the case keys as regular expressions.
+	 *
+	 * @param entries The parsed cases.
+	 * @throws java.util.regex.PatternSyntaxException If a key is not a valid
+	 *                                                regular expression.
+	 */
+	public RegexCaseTable(CaseEntries entries) {
+		patterns = new Pattern[entries.size()];
+		results = new CaseResult[entries.size()];
+		for (int i = 0; i < patterns.length; i++) {
+			patterns[i] = Patterns.compile(entries.getKey(i));
+			results[i] = entries.getResult(i);
+		}
+	}
+
+	@Override
+	public CaseResult find(String test) {
+		for (int i = 0; i < patterns.length; i++) {
+			if (patterns[i].matcher(test).find()) {
+				return results[i];
+			}
+		}
+		return null;
+	}
+}
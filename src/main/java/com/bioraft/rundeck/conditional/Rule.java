@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single if/else test with the values it chooses between, as used by rule
+ * tables and if / else-if chains.
+ *
+ * Rules are parsed from a JSON array of objects. Missing and null members
+ * are empty, and an unknown operator is a parse error.
+ */
+class Rule {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	final String group;
+	final String name;
+	final String testValue;
+	final String operator;
+	final String comparisonValue;
+	final String ifTrue;
+	final String ifFalse;
+	private final Comparison comparison;
+
+	private Rule(String group, String name, String testValue, String operator, String comparisonValue,
+			String ifTrue, String ifFalse) {
+		this.group = group;
+		this.name = name;
+		this.testValue = testValue;
+		this.operator = operator;
+		this.comparisonValue = comparisonValue;
+		this.ifTrue = ifTrue;
+		this.ifFalse = ifFalse;
+		this.comparison = Comparison.of(Operator.fromLabel(operator), comparisonValue);
+	}
+
+	/**
+	 * Parse a JSON array of rules.
+	 *
+	 * @param json      The rules as a JSON array of objects.
+	 * @param label     What a rule is called in error messages, e.g. "Branch".
+	 * @param trueField The member holding the value for a true test.
+	 * @return The rules.
+	 * @throws JsonProcessingException If the text is not a JSON array or a rule
+	 *                                 has an unknown operator.
+	 */
+	static List<Rule> parse(String json, String label, String trueField) throws JsonProcessingException {
+		JsonNode array = MAPPER.readTree(json);
+		if (array == null || !array.isArray()) {
+			throw JsonMappingException.from((JsonParser) null,
+					"Expected a JSON array of objects, one per " + label.toLowerCase() + ".");
+		}
+		List<Rule> rules = new ArrayList<>();
+		for (JsonNode row : array) {
+			String operator = text(row, "operator");
+			if (Operator.fromLabel(operator) == null) {
+				throw JsonMappingException.from((JsonParser) null,
+						label + " " + (rules.size() + 1) + " has unknown operator \"" + operator + "\".");
+			}
+			rules.add(new Rule(text(row, "group"), text(row, "name"), text(row, "testValue"), operator,
+					text(row, "comparisonValue"), text(row, trueField), text(row, "ifFalse")));
+		}
+		return Collections.unmodifiableList(rules);
+	}
+
+	private static String text(JsonNode row, String field) {
+		return row.path(field).asText("");
+	}
+
+	/**
+	 * Encode rules for the on-disk cache.
+	 *
+	 * @param rules The rules.
+	 * @param out   Where to write them.
+	 * @throws IOException If writing fails.
+	 */
+	static void writeAll(List<Rule> rules, DataOutput out) throws IOException {
+		out.writeInt(rules.size());
+		for (Rule rule : rules) {
+			for (String field : new String[] { rule.group, rule.name, rule.testValue, rule.operator,
+					rule.comparisonValue, rule.ifTrue, rule.ifFalse }) {
+				DiskCache.writeString(out, field);
+			}
+		}
+	}
+
+	/**
+	 * Decode rules written by writeAll.
+	 *
+	 * @param in Where to read them.
+	 * @return The rules.
+	 * @throws IOException If reading fails or a rule is incomplete or has an
+	 *                     unknown operator.
+	 */
+	static List<Rule> readAll(DataInput in) throws IOException {
+		int size = in.readInt();
+		List<Rule> rules = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			String[] fields = new String[7];
+			for (int field = 0; field < fields.length; field++) {
+				fields[field] = DiskCache.readString(in);
+				if (fields[field] == null) {
+					throw new IOException("Missing field in rule " + (i + 1));
+				}
+			}
+			if (Operator.fromLabel(fields[3]) == null) {
+				throw new IOException("Unknown operator " + fields[3]);
+			}
+			rules.add(new Rule(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5], fields[6]));
+		}
+		return Collections.unmodifiableList(rules);
+	}
+
+	boolean test() {
+		return comparison.test(testValue);
+	}
+
+	@Override
+	public String toString() {
+		return (name.length() > 0 ? name + ": " : "") + testValue + " " + operator + " " + comparisonValue;
+	}
+}
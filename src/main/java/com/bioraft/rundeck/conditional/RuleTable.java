@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import com.dtolabs.rundeck.plugins.step.PluginStepContext;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Immutable table of if/else rules, each of which sets one variable.
+ *
+ * Rules are given as a JSON array of objects with the members group, name,
+ * testValue, operator, comparisonValue, ifTrue and ifFalse; group may be
+ * omitted to use the step's group. Every rule is evaluated with the same
+ * operators and semantics as IfElse. Compiled tables are cached by the raw
+ * rules string.
+ */
+public class RuleTable {
+
+	/** Maximum number of compiled tables kept in memory. */
+	public static final int CACHE_SIZE = 256;
+
+	private static final LruCache<String, RuleTable> CACHE = new LruCache<>("ruleTable", CACHE_SIZE);
+
+	/** Encodes tables for the on-disk cache. */
+	static final DiskCache.Codec<RuleTable> CODEC = new DiskCache.Codec<RuleTable>() {
+		@Override
+		public void write(RuleTable table, DataOutput out) throws IOException {
+			Rule.writeAll(table.rules, out);
+		}
+
+		@Override
+		public RuleTable read(DataInput in) throws IOException {
+			return new RuleTable(Rule.readAll(in));
+		}
+	};
+
+	private final List<Rule> rules;
+
+	private RuleTable(List<Rule> rules) {
+		this.rules = rules;
+	}
+
+	/**
+	 * Get the compiled table for a rules string, compiling it on first use.
+	 *
+	 * @param rules The rules as a JSON array of objects.
+	 * @return The compiled table.
+	 * @throws JsonProcessingException If the rules cannot be parsed.
+	 */
+	public static RuleTable forRules(String rules) throws JsonProcessingException {
+		return DiskCache.get(CACHE, "rules", rules, CODEC, RuleTable::compile);
+	}
+
+	/**
+	 * Parse a rules string into a new table without consulting the cache.
+	 *
+	 * @param rules The rules as a JSON array of objects.
+	 * @return The compiled table.
+	 * @throws JsonProcessingException If the rules cannot be parsed, or a rule
+	 *                                 has no name or an unknown operator.
+	 */
+	public static RuleTable compile(String rules) throws JsonProcessingException {
+		List<Rule> compiled = Rule.parse(rules, "Rule", "ifTrue");
+		for (int i = 0; i < compiled.size(); i++) {
+			if (compiled.get(i).name.length() == 0) {
+				throw JsonMappingException.from((JsonParser) null, "Rule " + (i + 1) + " has no name.");
+			}
+		}
+		return new RuleTable(compiled);
+	}
+
+	public int size() {
+		return rules.size();
+	}
+
+	/**
+	 * Evaluate every rule, then write all resulting variables to the shared
+	 * output context.
+	 *
+	 * @param ctx          Plugin step context.
+	 * @param defaultGroup Group for rules that do not name one.
+	 * @param elevate      If specified, also create variables in global export
+	 *                     context.
+	 * @return The number of variables set.
+	 * @throws JsonProcessingException If a rule has no group and no default
+	 *                                 group is given; nothing is set.
+	 */
+	public int apply(PluginStepContext ctx, String defaultGroup, boolean elevate) throws JsonProcessingException {
+		StepLogger log = new StepLogger(ctx);
+		String[] values = new String[rules.size()];
+		for (int i = 0; i < values.length; i++) {
+			Rule rule = rules.get(i);
+			if (rule.group.length() == 0 && defaultGroup.length() == 0) {
+				throw JsonMappingException.from((JsonParser) null,
+						"Rule " + (i + 1) + " has no group and the step sets no default group.");
+			}
+			boolean matched = rule.test();
+			values[i] = matched ? rule.ifTrue : rule.ifFalse;
+			if (log.isDebugEnabled()) {
+				log.debug((matched ? "Matched " : "No match for ") + rule + ".");
+			}
+		}
+
+		int count = 0;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i].length() > 0) {
+				Rule rule = rules.get(i);
+				String group = rule.group.length() > 0 ? rule.group : defaultGroup;
+				Outputs.add(ctx, log, elevate, group, rule.name, values[i]);
+				count++;
+			}
+		}
+		return count;
+	}
+}
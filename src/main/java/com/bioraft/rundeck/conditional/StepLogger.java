@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import com.dtolabs.rundeck.core.Constants;
+import com.dtolabs.rundeck.core.execution.ExecutionContext;
+import com.dtolabs.rundeck.plugins.step.PluginStepContext;
+
+import java.util.function.Supplier;
+
+/**
+ * Thin facade over the step's PluginLogger that only builds debug messages
+ * when the execution is running at debug level.
+ */
+public class StepLogger {
+
+	private final PluginStepContext ctx;
+
+	private final boolean debug;
+
+	/**
+	 * Constructor sets PluginStepContext and captures its log level.
+	 *
+	 * @param ctx Plugin step context.
+	 */
+	public StepLogger(PluginStepContext ctx) {
+		this.ctx = ctx;
+		this.debug = isDebug(ctx);
+	}
+
+	/**
+	 * An execution without a known log level is treated as running at debug
+	 * level, leaving filtering to the PluginLogger.
+	 */
+	private static boolean isDebug(PluginStepContext ctx) {
+		ExecutionContext executionContext = ctx.getExecutionContext();
+		return executionContext == null || executionContext.getLoglevel() >= Constants.DEBUG_LEVEL;
+	}
+
+	public boolean isDebugEnabled() {
+		return debug;
+	}
+
+	/**
+	 * Log a constant debug message.
+	 *
+	 * @param message The message.
+	 */
+	public void debug(String message) {
+		if (debug) {
+			ctx.getLogger().log(Constants.DEBUG_LEVEL, message);
+		}
+	}
+
+	/**
+	 * Log a debug message that is only built if it will be logged.
+	 *
+	 * @param message Supplier of the message.
+	 */
+	public void debug(Supplier<String> message) {
+		if (debug) {
+			ctx.getLogger().log(Constants.DEBUG_LEVEL, message.get());
+		}
+	}
+
+	/**
+	 * Log an error message.
+	 *
+	 * @param message The message.
+	 */
+	public void error(String message) {
+		ctx.getLogger().log(Constants.ERR_LEVEL, message);
+	}
+}
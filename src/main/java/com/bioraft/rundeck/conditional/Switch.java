@@ -15,15 +15,13 @@
  */
 package com.bioraft.rundeck.conditional;
 
-import com.dtolabs.rundeck.core.Constants;
-import com.dtolabs.rundeck.core.dispatcher.ContextView;
 import com.dtolabs.rundeck.core.execution.workflow.steps.FailureReason;
 import com.dtolabs.rundeck.plugins.step.PluginStepContext;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
-import java.util.Iterator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
 import java.util.Map;
 
 /**
@@ -37,12 +35,41 @@ public class Switch {
 
 	public static final String CFG_DEFAULT_VALUE = "defaultValue";
 
+	public static final String MODE_EXACT = "exact";
+	public static final String MODE_REGEX = "regex";
+	public static final String MODE_RANGE = "range";
+	public static final String MODE_PREFIX = "prefix";
+	public static final String MODE_SUFFIX = "suffix";
+	public static final String MODE_GLOB = "glob";
+
+	private static final Map<MatchMode, ConditionalMetrics.Timer> TIMERS = new EnumMap<>(MatchMode.class);
+
+	static {
+		for (MatchMode mode : MatchMode.values()) {
+			TIMERS.put(mode, ConditionalMetrics.timer("switch." + mode.getLabel()));
+		}
+	}
+
 	private PluginStepContext ctx;
 
+	private StepLogger log;
+
 	private Map<String, Object> cfg;
 
 	private String defaultValue;
 
+	/** If specified, scan the cases as a stream instead of compiling them. */
+	private boolean streaming = false;
+
+	/** How case keys are matched against the test value. */
+	private MatchMode matchMode = MatchMode.EXACT;
+
+	/** If specified, read exact-match cases from this table file instead. */
+	private String casesFile;
+
+	/** If specified, substitute %{group.key} placeholders in the matched value. */
+	private boolean templates = false;
+
 	/**
 	 * Constructor sets PluginStepContext, configuration map, and default value.
 	 *
@@ -52,6 +79,7 @@ public class Switch {
 	 */
 	public Switch(PluginStepContext ctx, Map<String, Object> cfg, String defaultValue) {
 		this.ctx = ctx;
+		this.log = new StepLogger(ctx);
 		this.cfg = cfg;
 
 		boolean cfgHasDefault = cfg.containsKey(CFG_DEFAULT_VALUE);
@@ -65,13 +93,61 @@ public class Switch {
 
 	}
 
+	/**
+	 * Setter to choose streaming evaluation of cases.
+	 *
+	 * @param streaming Flag indicating if cases should be scanned once rather
+	 *                  than compiled and cached.
+	 * @return self
+	 */
+	public Switch setStreaming(boolean streaming) {
+		this.streaming = streaming;
+		return this;
+	}
+
+	/**
+	 * Setter to choose how case keys are matched. Streaming only applies to
+	 * exact matching; other modes always compile their cases.
+	 *
+	 * @param matchMode The match mode.
+	 * @return self
+	 */
+	public Switch setMatchMode(MatchMode matchMode) {
+		this.matchMode = matchMode;
+		return this;
+	}
+
+	/**
+	 * Setter to substitute %{group.key} placeholders in the matched value from
+	 * the data context, so that one cases text serves every node.
+	 *
+	 * @param templates Flag indicating if case values are templates.
+	 * @return self
+	 */
+	public Switch setTemplates(boolean templates) {
+		this.templates = templates;
+		return this;
+	}
+
+	/**
+	 * Setter to read cases from a table file of tab-separated keys and values.
+	 *
+	 * @param casesFile Path of the table file, or null or empty to use cases.
+	 * @return self
+	 */
+	public Switch setCasesFile(String casesFile) {
+		this.casesFile = casesFile;
+		return this;
+	}
+
 	/**
 	 * Assign a value to SharedOutputContext if a test case is matched, otherwise
 	 * assign default if non-null..
 	 * 
 	 * @param group        The group to place the variable in.
 	 * @param name         The name of the variable.
-	 * @param cases        The switch cases as test1:value1;test2:value2
+	 * @param cases        The switch cases as test1:value1;test2:value2; a value
+	 *                     may be an object to set ${group.field} for each field
 	 * @param test         The string to test the cases against.
 	 * @param elevate      If specified, also create a variable in global export
 	 *                     context.
@@ -79,25 +155,38 @@ public class Switch {
 	public void switchCase(String group, String name, String cases, String test, boolean elevate) throws JsonProcessingException {
 		group = cfg.getOrDefault("group", group).toString();
 		name = cfg.getOrDefault("name", name).toString();
-		cases = cfg.getOrDefault("cases", cases).toString();
+		cases = cfg.getOrDefault("cases", cases == null ? "" : cases).toString();
 		test = cfg.getOrDefault("testValue", test).toString();
+		casesFile = cfg.getOrDefault("casesFile", casesFile == null ? "" : casesFile).toString();
 
-		String message = "Setting " + group + "." + name + " based on " + test + " " + cases;
-		ctx.getLogger().log(Constants.DEBUG_LEVEL, message);
+		if (log.isDebugEnabled()) {
+			log.debug("Setting " + group + "." + name + " based on " + test + " " + cases);
+		}
 
 		// If no case was matched, assign defaultValue if it is not null.
+		ConditionalMetrics.Timer timer = TIMERS.get(matchMode);
+		long start = System.nanoTime();
 		try {
+			ConditionalMetrics.Outcome outcome = ConditionalMetrics.Outcome.MATCHED;
 			if (!switchCase2(group, name, cases, test, elevate)) {
 				if (defaultValue != null && defaultValue.length() > 0) {
-					addOutput(elevate, group, name, defaultValue);
-					ctx.getLogger().log(Constants.DEBUG_LEVEL, "No match, using default.");
+					Outputs.add(ctx, log, elevate, group, name, defaultValue);
+					log.debug("No match, using default.");
+					outcome = ConditionalMetrics.Outcome.DEFAULTED;
 				} else {
-					ctx.getLogger().log(Constants.DEBUG_LEVEL, "No match, default is empty.");
+					log.debug("No match, default is empty.");
+					outcome = ConditionalMetrics.Outcome.UNMATCHED;
 				}
 			}
-		} catch (JsonProcessingException e) {
-			ctx.getLogger().log(Constants.ERR_LEVEL, "Failed to parse cases.");
-			ctx.getLogger().log(Constants.ERR_LEVEL, e.getMessage());
+			timer.record(outcome, start);
+		} catch (JsonProcessingException | IllegalArgumentException e) {
+			timer.parseError();
+			log.error("Failed to parse cases.");
+			log.error(e.getMessage());
+			throw e;
+		} catch (UncheckedIOException e) {
+			log.error("Failed to read cases file " + casesFile + ".");
+			log.error(e.getMessage());
 			throw e;
 		}
 	}
@@ -114,48 +203,95 @@ public class Switch {
 	 * @return True if matched, false otherwise.
 	 */
 	public boolean switchCase2(String group, String name, String cases, String test, boolean elevate) throws JsonProcessingException {
-		ObjectMapper objectMapper = new ObjectMapper();
-		JsonNode map = objectMapper.readTree(ensureStringIsJsonObject(cases));
-		Iterator<Map.Entry<String, JsonNode>> iterator = map.fields();
-		while (iterator.hasNext()) {
-			Map.Entry<String, JsonNode> entry = iterator.next();
-			String key = entry.getKey();
-			String value = entry.getValue().asText();
-			if (test.equals(key)) {
-				addOutput(elevate, group, name, value);
-				ctx.getLogger().log(Constants.DEBUG_LEVEL, "Matched " + key + ".");
-				return true;
+		CaseResult result;
+		if (casesFile != null && casesFile.length() > 0) {
+			result = findInFile(test);
+		} else if (streaming && matchMode == MatchMode.EXACT) {
+			result = CaseParser.find(cases, test);
+		} else {
+			result = ExecutionScope.shared(ctx, matchMode.name(), cases, matchMode.compiler).find(test);
+		}
+		if (result != null) {
+			if (templates) {
+				result = result.bind(ctx.getDataContext());
 			}
+			result.addOutputs(ctx, log, elevate, group, name);
+			if (log.isDebugEnabled()) {
+				log.debug("Matched " + test + ".");
+			}
+			return true;
 		}
 		return false;
 	}
 
-	/**
-	 * Adds output to shared context, also elevating to global if requested.
-	 * 
-	 * @param elevate Elevate to global context?
-	 * @param group Variable group.
-	 * @param name Variable name.
-	 * @param value Variable value.
-	 */
-	private void addOutput(boolean elevate, String group, String name, String value) {
-		ctx.getOutputContext().addOutput(group, name, value);
-		if (elevate) {
-			String groupName = group + "." + name;
-			ctx.getOutputContext().addOutput(ContextView.global(), "export", groupName, value);
-			ctx.getLogger().log(Constants.DEBUG_LEVEL, "Elevating to globsal ${export." + groupName + "}.");
+	private CaseResult findInFile(String test) {
+		if (matchMode != MatchMode.EXACT) {
+			throw new IllegalArgumentException("Cases files support only exact matching.");
+		}
+		try {
+			// The file is resolved and its index checked once per execution step.
+			return ExecutionScope.shared(ctx, "casesFile", casesFile, MappedCaseTable::forFile).find(test);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (UncheckedIOException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			// Report anything unexpected from the file system as a cases file failure.
+			throw new UncheckedIOException(new IOException(String.valueOf(e.getMessage()), e));
 		}
 	}
 
+	/**
+	 * Wrap switch cases in braces, dropping a trailing comma, so that they can
+	 * be read as a JSON object.
+	 *
+	 * @deprecated Cases are read by CaseParser, which accepts them without
+	 *             braces.
+	 */
+	@Deprecated
 	public static String ensureStringIsJsonObject(String string) {
 		if (string == null) {
 			return "";
 		}
 		String trimmed = string.trim().replaceFirst(",[\\s}]*$", "");
-		return (trimmed.startsWith("{") ? "" : "{") + trimmed + (trimmed.endsWith("}") ? "" : "}");
+		StringBuilder builder = new StringBuilder(trimmed.length() + 2);
+		if (!trimmed.startsWith("{")) {
+			builder.append('{');
+		}
+		builder.append(trimmed);
+		for (int depth = openBraces(builder); depth > 0; depth--) {
+			builder.append('}');
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Count braces left open at the end of a string, ignoring quoted text, so
+	 * that an object-valued last case is not mistaken for the closing brace.
+	 */
+	private static int openBraces(CharSequence string) {
+		int depth = 0;
+		boolean quoted = false;
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			if (quoted) {
+				if (c == '\\') {
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == '{') {
+				depth++;
+			} else if (c == '}') {
+				depth--;
+			}
+		}
+		return depth;
 	}
 
 	enum Causes implements FailureReason {
-		INVALID_JSON
+		INVALID_JSON, INVALID_CASE, CASES_FILE
 	}
 }
@@ -15,6 +15,7 @@
  */
 package com.bioraft.rundeck.conditional;
 
+import java.io.UncheckedIOException;
 import java.util.Map;
 
 import com.dtolabs.rundeck.core.execution.workflow.steps.StepException;
@@ -24,6 +25,7 @@ import com.dtolabs.rundeck.plugins.descriptions.PluginDescription;
 import com.dtolabs.rundeck.plugins.descriptions.PluginProperty;
 import com.dtolabs.rundeck.plugins.descriptions.RenderingOption;
 import com.dtolabs.rundeck.plugins.descriptions.RenderingOptions;
+import com.dtolabs.rundeck.plugins.descriptions.SelectValues;
 import com.dtolabs.rundeck.plugins.step.PluginStepContext;
 import com.dtolabs.rundeck.plugins.step.StepPlugin;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -49,13 +51,16 @@ public class SwitchCaseStepPlugin implements StepPlugin {
 	@PluginProperty(title = "Name", description = "Variable name (i.e., ${group.name}", required = true)
 	private String name;
 
-	@PluginProperty(title = "Cases", description = "Cases and results as colon-spliced pairs of quoted strings, separated by commas (i.e., members of a JSON object)", required = true)
+	@PluginProperty(title = "Cases", description = "Cases and results as colon-spliced pairs of quoted strings, separated by commas (i.e., members of a JSON object), or as key:value pairs separated by semicolons")
 	@RenderingOptions({
 			@RenderingOption(key = DISPLAY_TYPE_KEY, value = "CODE"),
 			@RenderingOption(key = CODE_SYNTAX_MODE, value = "json"),
 	})
 	private String cases;
 
+	@PluginProperty(title = "Cases File", description = "Path to a local table file of tab-separated keys and values, inside a directory named by the rundeck.conditional.casesDir system property, used instead of Cases for very large exact-match tables")
+	private String casesFile;
+
 	@PluginProperty(title = "Test Value", description = "Test value", required = true)
 	private String testValue;
 
@@ -65,15 +70,35 @@ public class SwitchCaseStepPlugin implements StepPlugin {
 	@PluginProperty(title = "Make global?", description = "Elevate this variable to global scope (default: false)")
 	private boolean elevateToGlobal;
 
+	@PluginProperty(title = "Stream cases?", description = "Scan cases once without compiling them, for very large tables evaluated only once (default: false)")
+	private boolean streaming;
+
+	@PluginProperty(title = "Template values?", description = "Substitute %{group.key} placeholders in the matched value from the data context, e.g. %{node.hostname}, so the cases are the same for every node (default: false)")
+	private boolean templateValues;
+
+	@PluginProperty(title = "Match Mode", description = "How cases are matched: exact strings, regular expressions tried in order, numeric ranges such as [0,50), longest matching prefix or suffix, or glob patterns such as web-*-prod (default: exact)", defaultValue = Switch.MODE_EXACT)
+	@SelectValues(values = { Switch.MODE_EXACT, Switch.MODE_REGEX, Switch.MODE_RANGE, Switch.MODE_PREFIX,
+			Switch.MODE_SUFFIX, Switch.MODE_GLOB })
+	private String matchMode;
+
 	@Override
 	public void executeStep(final PluginStepContext ctx, final Map<String, Object> cfg) throws StepException {
 
-		elevateToGlobal = cfg.getOrDefault("elevateToGlobal", String.valueOf(elevateToGlobal)).equals("true");
+		boolean elevate = Config.flag(cfg, "elevateToGlobal", elevateToGlobal);
+		boolean stream = Config.flag(cfg, "streaming", streaming);
+		boolean templates = Config.flag(cfg, "templateValues", templateValues);
+		String mode = String.valueOf(cfg.getOrDefault("matchMode", matchMode == null ? "" : matchMode));
 
 		try {
-			(new Switch(ctx, cfg, defaultValue)).switchCase(group, name, cases, testValue, elevateToGlobal);
+			(new Switch(ctx, cfg, defaultValue)).setStreaming(stream).setTemplates(templates)
+					.setMatchMode(MatchMode.fromLabel(mode))
+					.setCasesFile(casesFile).switchCase(group, name, cases, testValue, elevate);
 		} catch (JsonProcessingException e) {
 			throw new StepException(e.getMessage(), Switch.Causes.INVALID_JSON);
+		} catch (IllegalArgumentException e) {
+			throw new StepException(e.getMessage(), Switch.Causes.INVALID_CASE);
+		} catch (UncheckedIOException e) {
+			throw new StepException(e.getMessage(), Switch.Causes.CASES_FILE);
 		}
 	}
 
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A case value with %{group.key} placeholders, compiled once and rendered
+ * against a step's data context.
+ *
+ * Rundeck expands ${group.key} references before the plugin sees its
+ * configuration, so a table using them differs for every node. Writing them
+ * as %{group.key} instead leaves the table text the same for every node, and
+ * only the matched value is rendered. A placeholder whose value is not in the
+ * data context renders as an empty string; text that is not a complete
+ * placeholder is kept as is.
+ */
+public class Template {
+
+	private static final String OPEN = "%{";
+
+	/** Literal text; one more than there are placeholders. */
+	private final String[] literals;
+
+	private final String[] groups;
+
+	private final String[] keys;
+
+	private Template(String[] literals, String[] groups, String[] keys) {
+		this.literals = literals;
+		this.groups = groups;
+		this.keys = keys;
+	}
+
+	/**
+	 * Compile a template.
+	 *
+	 * @param text The template text.
+	 * @return The compiled template.
+	 */
+	public static Template compile(String text) {
+		List<String> literals = new ArrayList<>();
+		List<String> groups = new ArrayList<>();
+		List<String> keys = new ArrayList<>();
+		int start = 0;
+		int from = 0;
+		int open;
+		while ((open = text.indexOf(OPEN, from)) >= 0) {
+			int close = text.indexOf('}', open);
+			if (close < 0) {
+				break;
+			}
+			int next = text.indexOf(OPEN, open + 1);
+			if (next >= 0 && next < close) {
+				from = next;
+				continue;
+			}
+			int dot = text.indexOf('.', open);
+			if (dot <= open + OPEN.length() || dot >= close - 1) {
+				from = open + 1;
+				continue;
+			}
+			literals.add(text.substring(start, open));
+			groups.add(text.substring(open + OPEN.length(), dot));
+			keys.add(text.substring(dot + 1, close));
+			start = close + 1;
+			from = start;
+		}
+		literals.add(text.substring(start));
+		return new Template(literals.toArray(new String[0]), groups.toArray(new String[0]),
+				keys.toArray(new String[0]));
+	}
+
+	public boolean hasPlaceholders() {
+		return groups.length > 0;
+	}
+
+	/**
+	 * Render the template.
+	 *
+	 * @param data The data context, by group and key.
+	 * @return The text with placeholders replaced by their values.
+	 */
+	public String render(Map<String, Map<String, String>> data) {
+		if (groups.length == 0) {
+			return literals[0];
+		}
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < groups.length; i++) {
+			builder.append(literals[i]);
+			Map<String, String> group = data == null ? null : data.get(groups[i]);
+			String value = group == null ? null : group.get(keys[i]);
+			if (value != null) {
+				builder.append(value);
+			}
+		}
+		return builder.append(literals[groups.length]).toString();
+	}
+}
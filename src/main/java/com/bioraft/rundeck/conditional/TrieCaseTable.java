@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Switch cases whose keys are prefixes, or suffixes, of the test value. The
+ * longest matching key wins.
+ *
+ * Keys are compiled into a character trie (built from reversed keys when
+ * matching suffixes), so a lookup walks the test value once and its cost does
+ * not depend on the number of cases.
+ */
+public class TrieCaseTable implements CaseMatcher {
+
+	private final Node root;
+
+	private final boolean suffix;
+
+	/**
+	 * Compile the case keys into a trie.
+	 *
+	 * @param entries The parsed cases.
+	 * @param suffix  True to match keys against the end of the test value.
+	 */
+	public TrieCaseTable(CaseEntries entries, boolean suffix) {
+		this.suffix = suffix;
+		Builder builder = new Builder();
+		for (int i = 0; i < entries.size(); i++) {
+			String key = entries.getKey(i);
+			Builder node = builder;
+			for (int j = 0; j < key.length(); j++) {
+				char c = key.charAt(suffix ? key.length() - 1 - j : j);
+				node = node.children.computeIfAbsent(c, k -> new Builder());
+			}
+			if (node.result == null) {
+				node.result = entries.getResult(i);
+			}
+		}
+		this.root = builder.build();
+	}
+
+	@Override
+	public CaseResult find(String test) {
+		Node node = root;
+		CaseResult longest = node.result;
+		int length = test.length();
+		for (int j = 0; j < length && node != null; j++) {
+			node = node.child(test.charAt(suffix ? length - 1 - j : j));
+			if (node != null && node.result != null) {
+				longest = node.result;
+			}
+		}
+		return longest;
+	}
+
+	private static class Node {
+
+		/** Sorted edge labels, parallel to children. */
+		private final char[] labels;
+
+		private final Node[] children;
+
+		private final CaseResult result;
+
+		Node(char[] labels, Node[] children, CaseResult result) {
+			this.labels = labels;
+			this.children = children;
+			this.result = result;
+		}
+
+		Node child(char c) {
+			int index = Arrays.binarySearch(labels, c);
+			return index < 0 ? null : children[index];
+		}
+	}
+
+	/** Mutable trie node used while compiling. */
+	private static class Builder {
+
+		final Map<Character, Builder> children = new TreeMap<>();
+
+		CaseResult result;
+
+		/** Whether the children have been pushed for building. */
+		boolean expanded;
+
+		/** The compiled node, once its children are compiled. */
+		Node node;
+
+		/**
+		 * Compile this node and its descendants. The depth of the trie is the
+		 * length of the longest key, so nodes are compiled children first from
+		 * an explicit stack rather than by recursion.
+		 */
+		Node build() {
+			Deque<Builder> stack = new ArrayDeque<>();
+			stack.push(this);
+			while (!stack.isEmpty()) {
+				Builder builder = stack.peek();
+				if (!builder.expanded) {
+					builder.expanded = true;
+					for (Builder child : builder.children.values()) {
+						stack.push(child);
+					}
+					continue;
+				}
+				stack.pop();
+				char[] labels = new char[builder.children.size()];
+				Node[] nodes = new Node[builder.children.size()];
+				int i = 0;
+				for (Map.Entry<Character, Builder> entry : builder.children.entrySet()) {
+					labels[i] = entry.getKey();
+					nodes[i] = entry.getValue().node;
+					i++;
+				}
+				builder.node = new Node(labels, nodes, builder.result);
+			}
+			return node;
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dtolabs.rundeck.core.Constants;
+import com.dtolabs.rundeck.core.common.INodeEntry;
+import com.dtolabs.rundeck.core.dispatcher.ContextView;
+import com.dtolabs.rundeck.core.execution.workflow.SharedOutputContext;
+
+/**
+ * Checks that steady-state evaluation allocates nothing beyond what writing
+ * its outputs costs, measured against writing the same outputs directly.
+ */
+public class AllocationBudgetTest {
+
+	private static final int WARMUP = 20000;
+
+	private static final int ITERATIONS = 20000;
+
+	/** Allowed average bytes per evaluation above the baseline, for one-off noise. */
+	private static final double TOLERANCE = 8;
+
+	/** Allowed bytes per plugin invocation for its per-call helper objects. */
+	private static final double PLUGIN_BUDGET = 96;
+
+	private com.sun.management.ThreadMXBean threads;
+
+	private final StepContextStub stub = new StepContextStub().withData("job", "execid", "7")
+			.withLogLevel(Constants.INFO_LEVEL);
+
+	private final Map<String, Object> cfg = new HashMap<>();
+
+	private interface Evaluation {
+		void run() throws Exception;
+	}
+
+	@Before
+	public void setUp() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		threads = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		cfg.put("group", "raft");
+		cfg.put("name", "test");
+		cfg.put("testValue", "5");
+		cfg.put("operator", IfElse.NUMBER_GT);
+		cfg.put("comparisonValue", "3");
+		cfg.put("ifTrue", "yes");
+		cfg.put("ifFalse", "no");
+		cfg.put("cases", "\"5\": \"five\", \"6\": \"six\"");
+	}
+
+	/** Average bytes allocated by one evaluation, after warming it up. */
+	private double allocated(Evaluation evaluation) throws Exception {
+		for (int i = 0; i < WARMUP; i++) {
+			evaluation.run();
+		}
+		long thread = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < ITERATIONS; i++) {
+			evaluation.run();
+		}
+		return (double) (threads.getThreadAllocatedBytes(thread) - before) / ITERATIONS;
+	}
+
+	/**
+	 * Bytes allocated by writing the outputs directly, including building the
+	 * "group.name" key of an elevated variable.
+	 */
+	private double output(boolean elevate) throws Exception {
+		SharedOutputContext outputs = stub.getOutputContext();
+		String[] names = { "raft", "test" };
+		return allocated(() -> {
+			outputs.addOutput(names[0], names[1], "value");
+			if (elevate) {
+				outputs.addOutput(ContextView.global(), "export", names[0] + "." + names[1], "value");
+			}
+		});
+	}
+
+	private void assertWithin(double budget, double baseline, double actual) {
+		assertTrue("Allocated " + actual + " bytes per evaluation, baseline " + baseline + " plus " + budget,
+				actual <= baseline + budget);
+	}
+
+	@Test
+	public void ifElseAllocatesOnlyOutputs() throws Exception {
+		IfElse ifElse = new IfElse(stub.getContext()).setCfg(cfg);
+		assertWithin(TOLERANCE, output(false), allocated(() -> ifElse.ifElse("g", "n", "t", "=", "v", "y", "n")));
+		ifElse.setElevate(true);
+		assertWithin(TOLERANCE, output(true), allocated(() -> ifElse.ifElse("g", "n", "t", "=", "v", "y", "n")));
+	}
+
+	@Test
+	public void compiledSwitchAllocatesOnlyOutputs() throws Exception {
+		Switch switchCase = new Switch(stub.getContext(), cfg, null);
+		assertWithin(TOLERANCE, output(false), allocated(() -> switchCase.switchCase("g", "n", "", "t", false)));
+		assertWithin(TOLERANCE, output(true), allocated(() -> switchCase.switchCase("g", "n", "", "t", true)));
+	}
+
+	@Test
+	public void nodeStepPluginsStayWithinBudget() throws Exception {
+		INodeEntry node = StepContextStub.proxy(INodeEntry.class, (method, args) -> "node");
+		IfElseNodeStepPlugin ifElsePlugin = new IfElseNodeStepPlugin();
+		SwitchCaseNodeStepPlugin switchPlugin = new SwitchCaseNodeStepPlugin();
+		double baseline = output(false);
+		assertWithin(PLUGIN_BUDGET, baseline,
+				allocated(() -> ifElsePlugin.executeNodeStep(stub.getContext(), cfg, node)));
+		assertWithin(PLUGIN_BUDGET, baseline,
+				allocated(() -> switchPlugin.executeNodeStep(stub.getContext(), cfg, node)));
+	}
+}
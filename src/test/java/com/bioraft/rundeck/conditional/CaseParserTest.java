@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests for CaseParser.
+ */
+public class CaseParserTest {
+
+	@Test
+	public void parsesCompactPairs() throws CaseSyntaxException {
+		CaseEntries entries = CaseParser.parse(" k1 : v1 ; k2:http://example.com/a ; \"k;3\": \"v;3\";");
+		assertEquals(3, entries.size());
+		assertEquals("k1", entries.getKey(0));
+		assertEquals("v1", entries.getResult(0).getValue());
+		assertEquals("http://example.com/a", entries.getResult(1).getValue());
+		assertEquals("k;3", entries.getKey(2));
+		assertEquals("v;3", entries.getResult(2).getValue());
+	}
+
+	@Test
+	public void keepsCompactValuesAsWritten() throws CaseSyntaxException {
+		CaseEntries entries = CaseParser.parse("a:2.50;b:{\"x\": 1.0}");
+		assertEquals("2.50", entries.getResult(0).getValue());
+		assertEquals("1.0", entries.getResult(1).getField("x"));
+	}
+
+	@Test
+	public void rendersJsonScalarsLikeJackson() throws CaseSyntaxException {
+		CaseEntries entries = CaseParser.parse("\"a\": 2.50, \"b\": 1e2, \"c\": -0, \"d\": null, \"e\": [1], \"f\": \"\\u0041\\n\",");
+		assertEquals("2.5", entries.getResult(0).getValue());
+		assertEquals("100.0", entries.getResult(1).getValue());
+		assertEquals("0", entries.getResult(2).getValue());
+		assertEquals("null", entries.getResult(3).getValue());
+		assertEquals("", entries.getResult(4).getValue());
+		assertEquals("A\n", entries.getResult(5).getValue());
+	}
+
+	@Test
+	public void repeatedKeyKeepsFirstPositionAndLastValue() throws CaseSyntaxException {
+		CaseEntries entries = CaseParser.parse("{\"a\": \"1\", \"b\": \"2\", \"a\": \"3\"}");
+		assertEquals(2, entries.size());
+		assertEquals("a", entries.getKey(0));
+		assertEquals("3", entries.getResult(0).getValue());
+	}
+
+	@Test
+	public void repeatedKeyTakesValueJacksonReturns() throws IOException {
+		String cases = "{\"a\":\"1\",\"a\":\"2\"}";
+		String expected = new ObjectMapper().readTree(cases).get("a").asText();
+		assertEquals("2", expected);
+		assertEquals(expected, CaseParser.parse(cases).getResult(0).getValue());
+		assertEquals(expected, CaseParser.find(cases, "a").getValue());
+	}
+
+	@Test
+	public void compiledAndStreamedCasesAgreeOnRepeatedKeys() throws JsonProcessingException {
+		for (String cases : new String[] { "\"a\": \"1\", \"b\": \"2\", \"a\": \"3\"", "a:1;b:2;a:3",
+				"\"a\": {\"x\": \"1\"}, \"a\": \"3\"" }) {
+			CaseResult streamed = CaseParser.find(cases, "a");
+			for (MatchMode mode : new MatchMode[] { MatchMode.EXACT, MatchMode.GLOB, MatchMode.REGEX }) {
+				CaseResult compiled = mode.forCases(cases).find("a");
+				assertEquals(cases, streamed.getValue(), compiled.getValue());
+				assertEquals(cases, streamed.getField("x"), compiled.getField("x"));
+			}
+		}
+
+		String cases = "\"web\": \"first\", \"db\": \"x\", \"web\": \"second\"";
+		StepContextStub compiled = new StepContextStub();
+		new Switch(compiled.getContext(), new HashMap<>(), null).switchCase("raft", "role", cases, "web", false);
+		StepContextStub streamed = new StepContextStub();
+		new Switch(streamed.getContext(), new HashMap<>(), null).setStreaming(true).switchCase("raft", "role", cases,
+				"web", false);
+		assertEquals("second", compiled.getOutput("raft", "role"));
+		assertEquals("second", streamed.getOutput("raft", "role"));
+	}
+
+	@Test
+	public void findTakesLastMatch() throws CaseSyntaxException {
+		assertEquals("2", CaseParser.find("\"a\": \"1\", \"a\": \"2\"", "a").getValue());
+		assertEquals("3", CaseParser.find("a:1;b:2;a:3", "a").getValue());
+		assertEquals("2", CaseParser.find("a:1;b:2", "b").getValue());
+		assertNull(CaseParser.find("a:1;b:2", "c"));
+	}
+
+	@Test
+	public void findsMatchingCase() throws CaseSyntaxException {
+		String cases = "\"k1\": \"v1\", \"k2\": {\"x\": [1, 2]}, \"k3\": \"v3\",";
+		assertEquals("v1", CaseParser.find(cases, "k1").getValue());
+		assertEquals("", CaseParser.find(cases, "k2").getValue());
+		assertEquals("v3", CaseParser.find(cases, "k3").getValue());
+		assertNull(CaseParser.find(cases, "k4"));
+	}
+
+	@Test
+	public void findAcceptsBracedCases() throws CaseSyntaxException {
+		assertEquals("v1", CaseParser.find(" {\"k1\": \"v1\", } ", "k1").getValue());
+		assertEquals("v1", CaseParser.find("{\"k1\": \"v1\"", "k1").getValue());
+		assertEquals("v1", CaseParser.find("\"k1\": \"v1\"}", "k1").getValue());
+	}
+
+	@Test
+	public void findRendersScalarsLikeParse() throws CaseSyntaxException {
+		String cases = "\"a\": 1, \"b\": 2.50, \"c\": true, \"d\": null";
+		CaseEntries entries = CaseParser.parse(cases);
+		for (int i = 0; i < entries.size(); i++) {
+			assertEquals(entries.getResult(i).getValue(), CaseParser.find(cases, entries.getKey(i)).getValue());
+		}
+	}
+
+	@Test
+	public void findReadsObjectCases() throws CaseSyntaxException {
+		CaseResult result = CaseParser.find("\"dev\": {\"a\": \"1\"}, \"prod\": {\"a\": \"2\", \"b\": 3}", "prod");
+		assertEquals("2", result.getField("a"));
+		assertEquals("3", result.getField("b"));
+	}
+
+	@Test(expected = CaseSyntaxException.class)
+	public void findRejectsInvalidCasesBeforeMatch() throws CaseSyntaxException {
+		CaseParser.find("\"k1\": \"v1\". \"k2\": \"v2\"", "k2");
+	}
+
+	@Test
+	public void reportsErrorPosition() {
+		try {
+			CaseParser.parse("\"k1\": \"v1\",\n\"k2\": \"v2\". \"k3\": \"v3\"");
+			fail();
+		} catch (CaseSyntaxException e) {
+			assertEquals(22, e.getOffset());
+			assertEquals(2, e.getLocation().getLineNr());
+			assertEquals(11, e.getLocation().getColumnNr());
+			assertTrue(e.getMessage().startsWith("Expected ',' or '}'"));
+		}
+	}
+
+	@Test(expected = CaseSyntaxException.class)
+	public void rejectsCompactKeyWithoutValue() throws CaseSyntaxException {
+		CaseParser.parse("a:1;b;c:3");
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Tests for CaseTable.
+ */
+public class CaseTableTest {
+
+	@Before
+	public void setUp() {
+		CaseTable.clearCache();
+	}
+
+	@Test
+	public void findsMatchingCase() throws JsonProcessingException {
+		CaseTable table = CaseTable.compile("\"k1\": \"v1\", \"k2\": \"v2\",");
+		assertEquals(2, table.size());
+		assertEquals("v1", table.find("k1").getValue());
+		assertEquals("v2", table.find("k2").getValue());
+		assertNull(table.find("k3"));
+	}
+
+	@Test
+	public void reusesCompiledTable() throws JsonProcessingException {
+		String cases = "{\"k1\": \"v1\"}";
+		CaseTable table = CaseTable.forCases(cases);
+		assertSame(table, CaseTable.forCases(new String(cases)));
+	}
+
+	@Test
+	public void convertsScalarValuesToText() throws JsonProcessingException {
+		CaseTable table = CaseTable.compile("\"a\": 1, \"b\": true");
+		assertEquals("1", table.find("a").getValue());
+		assertEquals("true", table.find("b").getValue());
+	}
+
+	@Test
+	public void objectCasesSetFields() throws JsonProcessingException {
+		CaseTable table = CaseTable.compile("\"prod\": {\"region\": \"us-east-1\", \"bucket\": \"b1\"}");
+		CaseResult result = table.find("prod");
+		assertTrue(result.hasFields());
+		assertEquals("us-east-1", result.getField("region"));
+		assertEquals("b1", result.getField("bucket"));
+	}
+
+	@Test(expected = JsonProcessingException.class)
+	public void rejectsInvalidCases() throws JsonProcessingException {
+		CaseTable.compile("\"k1\": \"v1\". \"k2\": \"v2\"");
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for Comparison.
+ */
+public class ComparisonTest {
+
+	@Test
+	public void reusesCompiledComparison() {
+		Comparison comparison = Comparison.of(Operator.NUMBER_GT, "10");
+		assertSame(comparison, Comparison.of(Operator.NUMBER_GT, "10"));
+	}
+
+	@Test
+	public void comparesNumbers() {
+		assertTrue(Comparison.of(Operator.NUMBER_GT, "10").test("10.5"));
+		assertFalse(Comparison.of(Operator.NUMBER_GT, "10").test("9"));
+		assertFalse(Comparison.of(Operator.NUMBER_GT, "10").test("eleven"));
+		assertFalse(Comparison.of(Operator.NUMBER_NE, "ten").test("9"));
+	}
+
+	@Test
+	public void comparesStrings() {
+		assertTrue(Comparison.of(Operator.STRING_GT, "10").test("9"));
+		assertTrue(Comparison.of(Operator.STRING_END, "cake").test("layer cake"));
+	}
+
+	@Test
+	public void matchesRegularExpressions() {
+		assertTrue(Comparison.of(Operator.STRING_MATCH, "^web-\\d+$").test("web-12"));
+		assertTrue(Comparison.of(Operator.STRING_MATCH, "prod").test("eu-prod-1"));
+		assertFalse(Comparison.of(Operator.STRING_MATCH, "^web-\\d+$").test("web-x"));
+		assertFalse(Comparison.of(Operator.STRING_MATCH, "[unclosed").test("[unclosed"));
+	}
+}
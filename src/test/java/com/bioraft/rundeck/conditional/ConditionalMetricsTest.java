@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Tests for ConditionalMetrics.
+ */
+public class ConditionalMetricsTest {
+
+	private final ConditionalMetrics metrics = ConditionalMetrics.getInstance();
+
+	@Before
+	public void setUp() {
+		metrics.reset();
+	}
+
+	private static void ifElse(String testValue, String ifFalse) {
+		new IfElse(new StepContextStub().getContext()).setCfg(Collections.emptyMap()).ifElse("g", "n", testValue,
+				IfElse.NUMBER_GT, "10", "big", ifFalse);
+	}
+
+	@Test
+	public void countsIfElseOutcomes() {
+		ifElse("11", "");
+		ifElse("9", "small");
+		ifElse("8", "");
+		String key = "ifElse." + IfElse.NUMBER_GT;
+		assertEquals(Long.valueOf(1), metrics.getMatched().get(key));
+		assertEquals(Long.valueOf(1), metrics.getDefaulted().get(key));
+		assertEquals(Long.valueOf(1), metrics.getUnmatched().get(key));
+		long recorded = 0;
+		for (long count : metrics.getLatencyHistograms().get(key)) {
+			recorded += count;
+		}
+		assertEquals(3, recorded);
+		assertTrue(metrics.getLatencyP99Nanos().get(key) >= metrics.getLatencyP50Nanos().get(key));
+	}
+
+	@Test
+	public void countsSwitchParseErrors() {
+		Map<String, Object> cfg = new HashMap<>();
+		try {
+			new Switch(new StepContextStub().getContext(), cfg, "").switchCase("g", "n", "\"a\": \"b\". \"c\"", "a",
+					false);
+		} catch (JsonProcessingException e) {
+			// expected
+		}
+		assertEquals(Long.valueOf(1), metrics.getParseErrors().get("switch." + Switch.MODE_EXACT));
+	}
+
+	@Test
+	public void reportsCacheStatistics() {
+		Comparison.of(Operator.STRING_EQ, "metrics-cache-test");
+		Comparison.of(Operator.STRING_EQ, "metrics-cache-test");
+		String name = "comparison." + Operator.STRING_EQ.getLabel();
+		assertTrue(metrics.getCacheHits().get(name) > 0);
+		assertTrue(metrics.getCacheMisses().get(name) > 0);
+		assertTrue(metrics.getCacheSizes().get(name) > 0);
+		assertTrue(metrics.getCacheSizes().containsKey("comparison." + Operator.NUMBER_GT.getLabel()));
+	}
+
+	@Test
+	public void isRegisteredWithJmx() throws Exception {
+		ifElse("11", "");
+		Object matched = ManagementFactory.getPlatformMBeanServer().getAttribute(
+				new ObjectName(ConditionalMetrics.OBJECT_NAME), "Matched");
+		CompositeData row = ((TabularData) matched).get(new Object[] { "ifElse." + IfElse.NUMBER_GT });
+		assertEquals(1L, row.get("value"));
+	}
+}
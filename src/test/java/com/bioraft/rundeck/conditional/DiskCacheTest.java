@@ -0,0 +1,254 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Tests for DiskCache.
+ */
+public class DiskCacheTest {
+
+	private static final String CASES = "{\"a\":\"1\",\"b\":{\"x\":\"2\",\"y\":\"3\"},\"c\":null}";
+
+	private Path dir;
+
+	private final AtomicInteger compiled = new AtomicInteger();
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("cache");
+		System.setProperty(DiskCache.DIRECTORY_PROPERTY, dir.toString());
+		DiskCache.clearSeen();
+	}
+
+	@After
+	public void tearDown() {
+		System.clearProperty(DiskCache.DIRECTORY_PROPERTY);
+	}
+
+	private CaseEntries get(String cases) throws JsonProcessingException {
+		return DiskCache.get("cases", cases, CaseEntries.CODEC, source -> {
+			compiled.incrementAndGet();
+			return CaseEntries.parse(source);
+		});
+	}
+
+	private List<Path> entries() throws IOException {
+		List<Path> files = new ArrayList<>();
+		if (!Files.isDirectory(dir.resolve(DiskCache.CACHE_SUBDIR))) {
+			return files;
+		}
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir.resolve(DiskCache.CACHE_SUBDIR))) {
+			stream.forEach(files::add);
+		}
+		return files;
+	}
+
+	private void assertEntries(CaseEntries entries) throws JsonProcessingException {
+		assertEquals(3, entries.size());
+		assertEquals("a", entries.getKey(0));
+		assertEquals("1", entries.getResult(0).getValue());
+		assertTrue(entries.getResult(1).hasFields());
+		assertEquals("3", entries.getResult(1).getField("y"));
+		assertEquals(CaseEntries.parse("{\"c\":null}").getResult(0).getValue(), entries.getResult(2).getValue());
+	}
+
+	/** Compile text twice, so that it is written. */
+	private Path store(String cases) throws IOException {
+		get(cases);
+		get(cases);
+		List<Path> files = entries();
+		assertEquals(1, files.size());
+		return files.get(0);
+	}
+
+	@Test
+	public void storesEntriesSeenTwice() throws IOException {
+		assertEntries(get(CASES));
+		assertEquals(1, compiled.get());
+		assertEquals(0, entries().size());
+
+		assertEntries(get(CASES));
+		assertEquals(2, compiled.get());
+		assertEquals(1, entries().size());
+
+		assertEntries(get(new String(CASES)));
+		assertEquals(2, compiled.get());
+	}
+
+	@Test
+	public void loadsEntriesAfterRestart() throws IOException {
+		store(CASES);
+		DiskCache.clearSeen();
+		assertEntries(get(CASES));
+		assertEquals(2, compiled.get());
+	}
+
+	@Test
+	public void ignoresCacheDirectoryOpenToOthers() throws IOException {
+		Path cache = dir.resolve(DiskCache.CACHE_SUBDIR);
+		Assume.assumeTrue(Files.getFileStore(dir).supportsFileAttributeView(PosixFileAttributeView.class));
+		Path entry = store(CASES);
+		assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(cache)));
+		FileTime stored = FileTime.fromMillis(2000);
+		Files.setLastModifiedTime(entry, stored);
+		Files.setPosixFilePermissions(cache, PosixFilePermissions.fromString("rwxrwxrwx"));
+
+		DiskCache.clearSeen();
+		assertEntries(get(CASES));
+		assertEntries(get(CASES));
+		get("{\"d\":\"4\"}");
+		get("{\"d\":\"4\"}");
+		assertEquals(6, compiled.get());
+		assertEquals(1, entries().size());
+		assertEquals(stored, Files.getLastModifiedTime(entry));
+		assertEquals("rwxrwxrwx", PosixFilePermissions.toString(Files.getPosixFilePermissions(cache)));
+	}
+
+	@Test
+	public void neverWritesTextSeenOnce() throws IOException {
+		for (int node = 0; node < 50; node++) {
+			get("{\"node-" + node + "\":\"x\"}");
+		}
+		assertEquals(50, compiled.get());
+		assertEquals(0, entries().size());
+	}
+
+	@Test
+	public void prunesLeastRecentlyUsedEntries() throws IOException {
+		System.setProperty(DiskCache.MAX_FILES_PROPERTY, "2");
+		try {
+			Path first = store("{\"a\":\"1\"}");
+			Files.setLastModifiedTime(first, FileTime.fromMillis(1000));
+			get("{\"b\":\"2\"}");
+			get("{\"b\":\"2\"}");
+			assertEquals(2, entries().size());
+			Files.setLastModifiedTime(first, FileTime.fromMillis(System.currentTimeMillis() + 60000));
+			for (Path file : entries()) {
+				if (!file.equals(first)) {
+					Files.setLastModifiedTime(file, FileTime.fromMillis(2000));
+				}
+			}
+
+			get("{\"c\":\"3\"}");
+			get("{\"c\":\"3\"}");
+			List<Path> files = entries();
+			assertEquals(2, files.size());
+			assertTrue(files.contains(first));
+		} finally {
+			System.clearProperty(DiskCache.MAX_FILES_PROPERTY);
+		}
+	}
+
+	@Test
+	public void prunesToByteLimit() throws IOException {
+		store(CASES);
+		System.setProperty(DiskCache.MAX_BYTES_PROPERTY, "1");
+		try {
+			get("{\"other\":\"x\"}");
+			get("{\"other\":\"x\"}");
+			assertEquals(0, entries().size());
+		} finally {
+			System.clearProperty(DiskCache.MAX_BYTES_PROPERTY);
+		}
+	}
+
+	@Test
+	public void rebuildsCorruptEntry() throws IOException {
+		Path file = store(CASES);
+		byte[] bytes = Files.readAllBytes(file);
+		bytes[bytes.length / 2] ^= 0x40;
+		Files.write(file, bytes);
+
+		assertEntries(get(CASES));
+		assertEquals(3, compiled.get());
+		assertEntries(get(CASES));
+		assertEquals(3, compiled.get());
+	}
+
+	@Test
+	public void rebuildsTruncatedEntry() throws IOException {
+		Path file = store(CASES);
+		Files.write(file, new byte[] { 1, 2 });
+
+		assertEntries(get(CASES));
+		assertEquals(3, compiled.get());
+		assertTrue(Files.size(file) > 2);
+	}
+
+	@Test
+	public void rebuildsEntryOfOtherVersion() throws IOException {
+		Path file = store(CASES);
+		byte[] bytes = Files.readAllBytes(file);
+		ByteBuffer.wrap(bytes).putInt(4, DiskCache.VERSION + 1);
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length - 4);
+		ByteBuffer.wrap(bytes).putInt(bytes.length - 4, (int) crc.getValue());
+		Files.write(file, bytes);
+
+		assertEntries(get(CASES));
+		assertEquals(3, compiled.get());
+	}
+
+	@Test
+	public void writesNothingWhenDisabled() throws IOException {
+		System.clearProperty(DiskCache.DIRECTORY_PROPERTY);
+		get(CASES);
+		get(CASES);
+		assertEquals(2, compiled.get());
+		assertEquals(0, entries().size());
+	}
+
+	@Test
+	public void storesRuleTables() throws IOException {
+		String rules = "[{\"name\":\"env\",\"testValue\":\"prod\",\"operator\":\"eq\",\"comparisonValue\":\"prod\","
+				+ "\"ifTrue\":\"live\",\"ifFalse\":\"test\"}]";
+		DiskCache.get("rules", rules, RuleTable.CODEC, RuleTable::compile);
+		RuleTable table = DiskCache.get("rules", rules, RuleTable.CODEC, RuleTable::compile);
+		RuleTable loaded = DiskCache.get("rules", rules, RuleTable.CODEC, source -> {
+			throw new AssertionError("Compiled twice");
+		});
+		assertEquals(table.size(), loaded.size());
+		try (DataOutputStream out = new DataOutputStream(new ByteArrayOutputStream())) {
+			RuleTable.CODEC.write(loaded, out);
+			assertEquals(4 + 7 * 4 + "envprodeqprodlivetest".length(), out.size());
+		}
+	}
+}
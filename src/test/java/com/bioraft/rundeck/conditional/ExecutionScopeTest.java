@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dtolabs.rundeck.plugins.step.PluginStepContext;
+
+/**
+ * Tests for ExecutionScope.
+ */
+public class ExecutionScopeTest {
+
+	private final AtomicInteger compiled = new AtomicInteger();
+
+	@Before
+	public void setUp() {
+		ExecutionScope.clear();
+	}
+
+	private Object compile(String source) {
+		compiled.incrementAndGet();
+		return new StringBuilder(source);
+	}
+
+	private static PluginStepContext node(String execution) {
+		return new StepContextStub().withData("job", "execid", execution).getContext();
+	}
+
+	@Test
+	public void sharesStateAcrossNodesOfAnExecution() {
+		Object first = ExecutionScope.shared(node("42"), "cases", new String("a:b"), this::compile);
+		Object second = ExecutionScope.shared(node("42"), "cases", new String("a:b"), this::compile);
+		assertSame(first, second);
+		assertEquals(1, compiled.get());
+		assertEquals(1, ExecutionScope.size());
+	}
+
+	@Test
+	public void recompilesChangedSource() {
+		Object first = ExecutionScope.shared(node("42"), "cases", "a:b", this::compile);
+		Object second = ExecutionScope.shared(node("42"), "cases", "a:c", this::compile);
+		assertNotSame(first, second);
+		assertEquals(2, compiled.get());
+		assertEquals(1, ExecutionScope.size());
+		assertEquals(3, ExecutionScope.sourceChars());
+	}
+
+	@Test
+	public void keepsComparisonsOfEachOperatorApart() {
+		StepContextStub stub = new StepContextStub().withData("job", "execid", "42");
+		IfElse ifElse = new IfElse(stub.getContext()).setCfg(Collections.emptyMap());
+		ifElse.ifElse("raft", "eq", "5", "eq", "5", "yes", "no");
+		ifElse.ifElse("raft", "ne", "5", "ne", "5", "yes", "no");
+		assertEquals("yes", stub.getOutput("raft", "eq"));
+		assertEquals("no", stub.getOutput("raft", "ne"));
+		assertEquals(2, ExecutionScope.size());
+	}
+
+	private static String text(char c, long length) {
+		char[] chars = new char[(int) length];
+		Arrays.fill(chars, c);
+		return new String(chars);
+	}
+
+	@Test
+	public void boundsTotalSourceLength() {
+		long third = ExecutionScope.MAX_SOURCE_CHARS / 3 + 1;
+		ExecutionScope.shared(node("1"), "cases", text('a', third), this::compile);
+		ExecutionScope.shared(node("2"), "cases", text('b', third), this::compile);
+		assertEquals(2, ExecutionScope.size());
+		ExecutionScope.shared(node("3"), "cases", text('c', third), this::compile);
+		assertEquals(2, ExecutionScope.size());
+		assertTrue(ExecutionScope.sourceChars() <= ExecutionScope.MAX_SOURCE_CHARS);
+
+		ExecutionScope.shared(node("3"), "cases", text('c', third), this::compile);
+		assertEquals(3, compiled.get());
+	}
+
+	@Test
+	public void doesNotShareOversizedSource() {
+		String source = text('a', ExecutionScope.MAX_SOURCE_CHARS + 1);
+		ExecutionScope.shared(node("42"), "cases", source, this::compile);
+		ExecutionScope.shared(node("42"), "cases", source, this::compile);
+		assertEquals(2, compiled.get());
+		assertEquals(0, ExecutionScope.size());
+		assertEquals(0, ExecutionScope.sourceChars());
+	}
+
+	@Test
+	public void separatesExecutionsAndKinds() {
+		ExecutionScope.shared(node("42"), "cases", "a:b", this::compile);
+		ExecutionScope.shared(node("43"), "cases", "a:b", this::compile);
+		ExecutionScope.shared(node("42"), "comparison", "a:b", this::compile);
+		assertEquals(3, compiled.get());
+		assertEquals(3, ExecutionScope.size());
+	}
+
+	@Test
+	public void compilesDirectlyOutsideAnExecution() {
+		PluginStepContext ctx = new StepContextStub().getContext();
+		ExecutionScope.shared(ctx, "cases", "a:b", this::compile);
+		ExecutionScope.shared(ctx, "cases", "a:b", this::compile);
+		assertEquals(2, compiled.get());
+		assertEquals(0, ExecutionScope.size());
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.text.ParseException;
+
+import org.junit.Test;
+
+/**
+ * Tests for Expression.
+ */
+public class ExpressionTest {
+
+	@Test
+	public void evaluatesSingleComparisons() throws ParseException {
+		assertTrue(evaluate("\"prod\" eq \"prod\""));
+		assertTrue(evaluate("prod ne dev"));
+		assertTrue(evaluate("16 >= 8"));
+		assertFalse(evaluate("16 < 8"));
+		assertTrue(evaluate("'apple pie' begins with apple"));
+		assertTrue(evaluate("'layer cake' ends with \" cake\""));
+		assertFalse(evaluate("ten > 8"));
+		assertTrue(evaluate("1.00 = 1.000"));
+		assertTrue(evaluate("2.0!=3"));
+	}
+
+	@Test
+	public void combinesComparisons() throws ParseException {
+		assertTrue(evaluate("prod eq prod && 16 >= 8"));
+		assertFalse(evaluate("prod eq dev && 16 >= 8"));
+		assertTrue(evaluate("prod eq dev || 16 >= 8"));
+		assertTrue(evaluate("prod eq dev && 1 = 2 || 3 = 3"));
+		assertFalse(evaluate("prod eq dev && (1 = 2 || 3 = 3)"));
+		assertTrue(evaluate("!(prod eq dev)"));
+		assertFalse(evaluate("!!(prod eq dev)"));
+		assertTrue(evaluate("TRUE && !false"));
+	}
+
+	@Test
+	public void reusesParsedExpression() throws ParseException {
+		String text = "a eq a || b eq c";
+		assertSame(Expression.forText(text), Expression.forText(text));
+	}
+
+	@Test
+	public void treatsMissingOperandsAsEmpty() throws ParseException {
+		assertFalse(evaluate("prod eq "));
+		assertTrue(evaluate("prod ne "));
+		assertTrue(evaluate("\"\" eq "));
+		assertTrue(evaluate("(prod ne ) || 1 = 2"));
+		assertTrue(evaluate("prod ne && 1 = 1"));
+		assertFalse(evaluate(" = 0"));
+		assertFalse(evaluate(" != 1 && 1 = 1"));
+		assertTrue(evaluate("!( < 1)"));
+		assertTrue(evaluate("\"\" ne prod"));
+	}
+
+	@Test
+	public void readsOperatorWordsAsOperands() throws ParseException {
+		assertFalse(evaluate("ne eq "));
+		assertTrue(evaluate("ne eq ne"));
+		assertFalse(evaluate("lt eq \"y\""));
+		assertTrue(evaluate("lt eq lt"));
+		assertTrue(evaluate("eq eq eq"));
+		assertTrue(evaluate("matches matches matches"));
+		assertTrue(evaluate("\"begins with\" eq 'begins with'"));
+		assertTrue(evaluate("\"begins with x\" begins with \"begins with\""));
+		assertTrue(evaluate("x ne matches && eq ne lt"));
+		assertFalse(evaluate("begins eq with"));
+	}
+
+	@Test
+	public void reportsErrorPosition() {
+		assertError("", 0);
+		assertError(" eq \"prod\"", 4);
+		assertError(" = ", 1);
+		assertError("a eq b &&", 9);
+		assertError("(a eq b", 7);
+		assertError("a foo b", 2);
+		assertError("a eq 'b", 5);
+	}
+
+	private boolean evaluate(String text) throws ParseException {
+		return Expression.parse(text).evaluate();
+	}
+
+	private void assertError(String text, int offset) {
+		try {
+			Expression.parse(text);
+			fail("Expected an error for: " + text);
+		} catch (ParseException e) {
+			assertEquals(text, offset, e.getErrorOffset());
+		}
+	}
+}
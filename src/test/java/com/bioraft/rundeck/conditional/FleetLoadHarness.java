@@ -0,0 +1,241 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.dtolabs.rundeck.core.Constants;
+import com.dtolabs.rundeck.core.common.INodeEntry;
+
+/**
+ * Load harness that runs the node-step plugins for a simulated fleet, as
+ * Rundeck does when a job targets thousands of nodes, and reports throughput,
+ * latency percentiles, allocation and garbage collection for each thread
+ * count.
+ *
+ * Run with "gradle fleetHarness", passing options as
+ * -PfleetArgs="nodes=10000 threads=1,4,8 cases=1000 rounds=5".
+ */
+public class FleetLoadHarness {
+
+	private static final String[] OS = { "linux", "windows", "unix" };
+
+	private final int nodes;
+
+	private final int cases;
+
+	private final List<INodeEntry> fleet = new ArrayList<>();
+
+	private final String table;
+
+	private final SwitchCaseNodeStepPlugin switchPlugin = new SwitchCaseNodeStepPlugin();
+
+	private final IfElseNodeStepPlugin ifElsePlugin = new IfElseNodeStepPlugin();
+
+	FleetLoadHarness(int nodes, int cases) {
+		this.nodes = nodes;
+		this.cases = cases;
+		for (int i = 0; i < nodes; i++) {
+			fleet.add(node(i));
+		}
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < cases; i++) {
+			builder.append(i == 0 ? "" : ", ").append("\"rack-").append(i).append("\": \"zone-").append(i % 7)
+					.append('"');
+		}
+		table = builder.toString();
+	}
+
+	private static INodeEntry node(int index) {
+		String name = String.format("node-%05d", index);
+		Map<String, String> attributes = new HashMap<>();
+		attributes.put("nodename", name);
+		attributes.put("osFamily", OS[index % OS.length]);
+		attributes.put("rack", "rack-" + index);
+		attributes.put("cores", String.valueOf(2 << (index % 5)));
+		return StepContextStub.proxy(INodeEntry.class, (method, args) -> {
+			switch (method.getName()) {
+			case "getNodename":
+				return name;
+			case "getOsFamily":
+				return attributes.get("osFamily");
+			case "getAttributes":
+				return attributes;
+			default:
+				return null;
+			}
+		});
+	}
+
+	/** Measurements from one worker thread. */
+	private static class Sample {
+		long[] latencies;
+		long allocated;
+	}
+
+	/** Run both plugins for a slice of the fleet, as one worker thread. */
+	private Sample run(int first, int step) throws Exception {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		StepContextStub stub = new StepContextStub().withData("job", "execid", "42")
+				.withLogLevel(Constants.INFO_LEVEL);
+		Map<String, Object> switchCfg = new HashMap<>();
+		switchCfg.put("group", "fleet");
+		switchCfg.put("name", "zone");
+		switchCfg.put("defaultValue", "unknown");
+		Map<String, Object> ifElseCfg = new HashMap<>();
+		ifElseCfg.put("group", "fleet");
+		ifElseCfg.put("name", "size");
+		ifElseCfg.put("operator", IfElse.NUMBER_GE);
+		ifElseCfg.put("comparisonValue", "16");
+		ifElseCfg.put("ifTrue", "large");
+		ifElseCfg.put("ifFalse", "small");
+
+		Sample sample = new Sample();
+		sample.latencies = new long[(nodes - first + step - 1) / step];
+		int count = 0;
+		long copied = 0;
+		long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+		for (int i = first; i < nodes; i += step) {
+			INodeEntry node = fleet.get(i);
+			Map<String, String> attributes = node.getAttributes();
+			stub.reset();
+			// Rundeck expands the configuration for each node, so each node
+			// sees equal but distinct cases text; the copy is not counted.
+			long copyStart = threads.getThreadAllocatedBytes(threadId);
+			switchCfg.put("cases", new String(table.toCharArray()));
+			copied += threads.getThreadAllocatedBytes(threadId) - copyStart;
+
+			long start = System.nanoTime();
+			switchCfg.put("testValue", attributes.get("rack"));
+			switchPlugin.executeNodeStep(stub.getContext(), switchCfg, node);
+			ifElseCfg.put("testValue", attributes.get("cores"));
+			ifElsePlugin.executeNodeStep(stub.getContext(), ifElseCfg, node);
+			sample.latencies[count++] = System.nanoTime() - start;
+		}
+		sample.allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore - copied;
+		return sample;
+	}
+
+	/**
+	 * Dispatch the whole fleet across a number of threads and print one line
+	 * of results.
+	 *
+	 * @param threads Number of worker threads.
+	 * @param round   Round number, for the report.
+	 * @throws Exception If a plugin fails.
+	 */
+	void round(int threads, int round) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Callable<Sample>> tasks = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int first = t;
+				tasks.add(() -> run(first, threads));
+			}
+			long gcCount = gcCount();
+			long gcTime = gcTime();
+			long start = System.nanoTime();
+			List<Sample> samples = new ArrayList<>();
+			for (Future<Sample> future : executor.invokeAll(tasks)) {
+				samples.add(future.get());
+			}
+			long elapsed = System.nanoTime() - start;
+
+			long allocated = 0;
+			long[] latencies = new long[0];
+			for (Sample sample : samples) {
+				allocated += sample.allocated;
+				int length = latencies.length;
+				latencies = Arrays.copyOf(latencies, length + sample.latencies.length);
+				System.arraycopy(sample.latencies, 0, latencies, length, sample.latencies.length);
+			}
+			Arrays.sort(latencies);
+			System.out.printf(
+					"threads=%d round=%d nodes=%d cases=%d: %.0f nodes/s, p50=%.1fus, p99=%.1fus, "
+							+ "%.0f bytes/node, %.1f MB/s, gc=%d (%d ms)%n",
+					threads, round, nodes, cases, nodes * 1e9 / elapsed, percentile(latencies, 0.50) / 1e3,
+					percentile(latencies, 0.99) / 1e3, (double) allocated / nodes, allocated * 1e9 / elapsed / 1e6,
+					gcCount() - gcCount, gcTime() - gcTime);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static long percentile(long[] sorted, double fraction) {
+		return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long gcTime() {
+		long time = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			time += Math.max(0, gc.getCollectionTime());
+		}
+		return time;
+	}
+
+	/**
+	 * Run the harness.
+	 *
+	 * @param args Options as key=value: nodes, threads (comma separated),
+	 *             cases and rounds.
+	 * @throws Exception If a plugin fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new HashMap<>();
+		options.put("nodes", "10000");
+		options.put("threads", "1,2,4,8");
+		options.put("cases", "1000");
+		options.put("rounds", "5");
+		for (String arg : args) {
+			String[] pair = arg.split("=", 2);
+			if (pair.length != 2 || !options.containsKey(pair[0])) {
+				throw new IllegalArgumentException("Unknown option " + arg + "; expected one of " + options.keySet());
+			}
+			options.put(pair[0], pair[1]);
+		}
+
+		FleetLoadHarness harness = new FleetLoadHarness(Integer.parseInt(options.get("nodes")),
+				Integer.parseInt(options.get("cases")));
+		int rounds = Integer.parseInt(options.get("rounds"));
+		// Warm up so that the reported rounds measure compiled code.
+		harness.round(1, 0);
+		for (String threads : options.get("threads").split(",")) {
+			for (int round = 1; round <= rounds; round++) {
+				harness.round(Integer.parseInt(threads.trim()), round);
+			}
+		}
+	}
+}
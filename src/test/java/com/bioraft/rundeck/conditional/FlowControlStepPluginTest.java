@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.dtolabs.rundeck.core.execution.workflow.steps.StepException;
+
+/**
+ * Tests for FlowControlStepPlugin.
+ */
+public class FlowControlStepPluginTest {
+
+	private final StepContextStub stub = new StepContextStub();
+
+	private final FlowControlStepPlugin plugin = new FlowControlStepPlugin();
+
+	private Map<String, Object> cfg(String... entries) {
+		Map<String, Object> cfg = new HashMap<>();
+		for (int i = 0; i + 1 < entries.length; i += 2) {
+			cfg.put(entries[i], entries[i + 1]);
+		}
+		return cfg;
+	}
+
+	private String run(Map<String, Object> cfg) throws StepException {
+		stub.reset();
+		plugin.executeStep(stub.getContext(), cfg);
+		return stub.getFlowControlCall();
+	}
+
+	@Test
+	public void comparisonDefaultsToHaltWhenTrue() throws StepException {
+		assertEquals("Halt(true)", run(cfg("testValue", "0", "operator", IfElse.NUMBER_EQ, "comparisonValue", "0")));
+		assertEquals("Continue()", run(cfg("testValue", "3", "operator", IfElse.NUMBER_EQ, "comparisonValue", "0")));
+	}
+
+	@Test
+	public void comparisonUsesConfiguredActions() throws StepException {
+		Map<String, Object> cfg = cfg("testValue", "prod", "operator", IfElse.STRING_EQ, "comparisonValue", "prod",
+				"ifTrue", "continue", "ifFalse", "fail");
+		assertEquals("Continue()", run(cfg));
+		cfg.put("testValue", "dev");
+		assertEquals("Halt(false)", run(cfg));
+	}
+
+	@Test
+	public void casesChooseAction() throws StepException {
+		Map<String, Object> cfg = cfg("cases", "done: halt; error: fail; running: continue", "testValue", "error");
+		assertEquals("Halt(false)", run(cfg));
+		cfg.put("testValue", "done");
+		assertEquals("Halt(true)", run(cfg));
+		cfg.put("testValue", "unknown");
+		assertEquals("Continue()", run(cfg));
+		cfg.put("defaultValue", "fail");
+		assertEquals("Halt(false)", run(cfg));
+	}
+
+	@Test
+	public void casesUseMatchMode() throws StepException {
+		assertEquals("Halt(true)",
+				run(cfg("cases", "\"[0,10)\": \"halt\"", "matchMode", Switch.MODE_RANGE, "testValue", "4")));
+	}
+
+	@Test
+	public void rejectsInvalidConfiguration() {
+		assertFails(cfg("testValue", "x"), FlowControlStepPlugin.Causes.NO_CONDITION);
+		assertFails(cfg("testValue", "x", "operator", "~~"), FlowControlStepPlugin.Causes.INVALID_OPERATOR);
+		assertFails(cfg("testValue", "x", "cases", "x: stop"), Switch.Causes.INVALID_CASE);
+		assertFails(cfg("testValue", "x", "cases", "{\"x\": "), Switch.Causes.INVALID_JSON);
+	}
+
+	private void assertFails(Map<String, Object> cfg, Object reason) {
+		try {
+			run(cfg);
+			fail("Expected StepException");
+		} catch (StepException e) {
+			assertEquals(reason, e.getFailureReason());
+			assertNull(stub.getFlowControlCall());
+		}
+	}
+}
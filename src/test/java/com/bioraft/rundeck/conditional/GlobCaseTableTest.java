@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Tests for GlobCaseTable.
+ */
+public class GlobCaseTableTest {
+
+	private static GlobCaseTable compile(String cases) throws JsonProcessingException {
+		return new GlobCaseTable(CaseEntries.parse(cases));
+	}
+
+	@Test
+	public void matchesWildcards() throws JsonProcessingException {
+		GlobCaseTable table = compile("\"web-*-prod\": \"web\", \"db??.eu-*\": \"db\", \"*.example.com\": \"public\"");
+		assertEquals("web", table.find("web-01-prod").getValue());
+		assertEquals("web", table.find("web--prod").getValue());
+		assertEquals("db", table.find("db01.eu-west").getValue());
+		assertEquals("public", table.find("www.example.com").getValue());
+		assertNull(table.find("web-01-prod2"));
+		assertNull(table.find("db1.eu-west"));
+	}
+
+	@Test
+	public void firstListedPatternWins() throws JsonProcessingException {
+		GlobCaseTable table = compile("\"a*\": \"first\", \"*b\": \"second\", \"*\": \"any\"");
+		assertEquals("first", table.find("ab").getValue());
+		assertEquals("second", table.find("bb").getValue());
+		assertEquals("any", table.find("").getValue());
+		assertEquals("any", table.find("\u00e9t\u00e9").getValue());
+	}
+
+	@Test
+	public void escapesWildcards() throws JsonProcessingException {
+		GlobCaseTable table = compile("\"what\\\\?\": \"question\", \"*\\\\*\": \"star\"");
+		assertEquals("question", table.find("what?").getValue());
+		assertNull(table.find("whats"));
+		assertEquals("star", table.find("a*").getValue());
+		assertNull(table.find("ab"));
+	}
+
+	@Test
+	public void reusesStates() throws JsonProcessingException {
+		GlobCaseTable table = compile("\"*a*b*c\": \"abc\"");
+		table.find("xxaxxbxxc");
+		int states = table.stateCount();
+		table.find("yyayybyyc");
+		assertEquals(states, table.stateCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsTrailingEscape() throws JsonProcessingException {
+		compile("\"abc\\\\\": \"bad\"");
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.dtolabs.rundeck.core.execution.workflow.steps.StepException;
+import com.dtolabs.rundeck.core.execution.workflow.steps.node.NodeStepException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Tests for IfElseChain and the if / else-if chain plugins.
+ */
+public class IfElseChainTest {
+
+	private static final String BRANCHES = "["
+			+ "{\"testValue\": \"12\", \"operator\": \">=\", \"comparisonValue\": \"16\", \"result\": \"large\"},"
+			+ "{\"testValue\": \"12\", \"operator\": \">=\", \"comparisonValue\": \"8\", \"result\": \"medium\"},"
+			+ "{\"testValue\": \"12\", \"operator\": \">=\", \"comparisonValue\": \"0\", \"result\": \"small\"}"
+			+ "]";
+
+	private static String branch(String testValue, String operator, String comparisonValue, String result) {
+		return "{\"testValue\": \"" + testValue + "\", \"operator\": \"" + operator + "\", \"comparisonValue\": \""
+				+ comparisonValue + "\", \"result\": \"" + result + "\"}";
+	}
+
+	private static Map<String, Object> cfg(String branches, String elseValue) {
+		Map<String, Object> cfg = new HashMap<>();
+		cfg.put("group", "raft");
+		cfg.put("name", "size");
+		cfg.put("branches", branches);
+		if (elseValue != null) {
+			cfg.put("elseValue", elseValue);
+		}
+		return cfg;
+	}
+
+	@Test
+	public void stopsAtFirstTrueBranch() throws JsonProcessingException {
+		IfElseChain chain = IfElseChain.compile(BRANCHES);
+		assertEquals(3, chain.size());
+		assertEquals(1, chain.firstTrue());
+		assertEquals(0, IfElseChain.compile("[" + branch("web-01", "begins with", "web", "web") + ","
+				+ branch("web-01", "eq", "web-01", "exact") + "]").firstTrue());
+		assertEquals(-1, IfElseChain.compile("[" + branch("a", "eq", "b", "x") + "]").firstTrue());
+		assertEquals(-1, IfElseChain.compile("[]").firstTrue());
+	}
+
+	@Test
+	public void cachesCompiledChains() throws JsonProcessingException {
+		assertSame(IfElseChain.forBranches(BRANCHES), IfElseChain.forBranches(new String(BRANCHES)));
+	}
+
+	@Test
+	public void rejectsInvalidBranches() {
+		for (String branches : new String[] { "{}", "[", "[" + branch("a", "~~", "b", "x") + "]" }) {
+			try {
+				IfElseChain.compile(branches);
+				fail("Expected an exception for " + branches);
+			} catch (JsonProcessingException e) {
+				assertTrue(e.getMessage(), e.getMessage().length() > 0);
+			}
+		}
+	}
+
+	@Test
+	public void stepSetsFirstTrueResult() throws StepException {
+		StepContextStub stub = new StepContextStub();
+		new IfElseChainStepPlugin().executeStep(stub.getContext(), cfg(BRANCHES, "none"));
+		assertEquals("medium", stub.getOutput("raft", "size"));
+	}
+
+	@Test
+	public void stepUsesElseValue() throws StepException {
+		StepContextStub stub = new StepContextStub();
+		String branches = "[" + branch("3", ">", "5", "big") + "]";
+		new IfElseChainStepPlugin().executeStep(stub.getContext(), cfg(branches, "tiny"));
+		assertEquals("tiny", stub.getOutput("raft", "size"));
+
+		stub.reset();
+		new IfElseChainStepPlugin().executeStep(stub.getContext(), cfg(branches, null));
+		assertNull(stub.getOutput("raft", "size"));
+		assertEquals(0, stub.getOutputCount());
+	}
+
+	@Test
+	public void nodeStepSharesChainAndElevates() throws NodeStepException {
+		StepContextStub stub = new StepContextStub().withData("job", "execid", "9");
+		IfElseChainNodeStepPlugin plugin = new IfElseChainNodeStepPlugin();
+		Map<String, Object> cfg = cfg(BRANCHES, "none");
+		cfg.put("elevateToGlobal", "true");
+		plugin.executeNodeStep(stub.getContext(), cfg, StepContextStub.node("web-01"));
+		assertEquals("medium", stub.getOutput("raft", "size"));
+		assertEquals("medium", stub.getOutput("export", "raft.size"));
+	}
+
+	@Test
+	public void pluginsReportInvalidJson() {
+		try {
+			new IfElseChainStepPlugin().executeStep(new StepContextStub().getContext(), cfg("[{", null));
+			fail("Expected StepException");
+		} catch (StepException e) {
+			assertEquals(Switch.Causes.INVALID_JSON, e.getFailureReason());
+		}
+		try {
+			new IfElseChainNodeStepPlugin().executeNodeStep(new StepContextStub().getContext(), cfg("[{", null),
+					StepContextStub.node("web-01"));
+			fail("Expected NodeStepException");
+		} catch (NodeStepException e) {
+			assertEquals("web-01", e.getNodename());
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dtolabs.rundeck.core.execution.workflow.steps.StepException;
+
+/**
+ * Tests for IfElseTableStepPlugin.
+ */
+public class IfElseTableStepPluginTest {
+
+	IfElseTableStepPlugin plugin;
+
+	StepContextStub stub;
+
+	@Before
+	public void setUp() {
+		this.plugin = new IfElseTableStepPlugin();
+		this.stub = new StepContextStub();
+	}
+
+	@Test
+	public void setsEveryVariable() throws StepException {
+		String rules = "[" + rule("", "tier", "prod", "eq", "prod", "gold", "bronze") + ","
+				+ rule("node", "big", "16", ">=", "8", "yes", "no") + ","
+				+ rule("", "web", "db01", "begins with", "web", "true", "") + "]";
+		plugin.executeStep(stub.getContext(), configuration(rules, "false"));
+		assertEquals("gold", stub.getOutput("raft", "tier"));
+		assertEquals("yes", stub.getOutput("node", "big"));
+		assertNull(stub.getOutput("raft", "web"));
+		assertEquals(2, stub.getOutputCount());
+	}
+
+	@Test
+	public void rejectsUnknownOperator() {
+		String rules = "[" + rule("", "tier", "prod", "eq", "prod", "gold", "bronze") + ","
+				+ rule("", "odd", "x", "EQ", "x", "1", "0") + "]";
+		try {
+			plugin.executeStep(stub.getContext(), configuration(rules, "false"));
+			fail("Expected unknown operator to be rejected");
+		} catch (StepException e) {
+			assertEquals(Switch.Causes.INVALID_JSON, e.getFailureReason());
+			assertTrue(e.getMessage(), e.getMessage().contains("Rule 2 has unknown operator \"EQ\""));
+		}
+		assertEquals(0, stub.getOutputCount());
+	}
+
+	@Test
+	public void nullGroupUsesStepGroup() throws StepException {
+		String rules = "[{\"group\": null, \"name\": \"a\", \"testValue\": \"1\", \"operator\": \"=\", "
+				+ "\"comparisonValue\": \"1\", \"ifTrue\": \"one\"}]";
+		plugin.executeStep(stub.getContext(), configuration(rules, "true"));
+		assertEquals("one", stub.getOutput("raft", "a"));
+		assertEquals("one", stub.getOutput("export", "raft.a"));
+	}
+
+	@Test
+	public void rejectsRuleWithoutAnyGroup() {
+		String rules = "[" + rule("node", "a", "1", "=", "1", "one", "") + "," + rule("", "b", "1", "=", "1", "two", "")
+				+ "]";
+		Map<String, Object> configuration = configuration(rules, "true");
+		configuration.put("group", "");
+		try {
+			plugin.executeStep(stub.getContext(), configuration);
+			fail("Expected a rule without group to be rejected");
+		} catch (StepException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("Rule 2 has no group"));
+		}
+		assertEquals(0, stub.getOutputCount());
+	}
+
+	@Test
+	public void elevatesEveryVariable() throws StepException {
+		String rules = "[" + rule("", "a", "1", "=", "1", "one", "") + "," + rule("", "b", "1", "=", "2", "", "two")
+				+ "]";
+		plugin.executeStep(stub.getContext(), configuration(rules, "true"));
+		assertEquals("one", stub.getOutput("export", "raft.a"));
+		assertEquals("two", stub.getOutput("export", "raft.b"));
+		assertEquals(4, stub.getOutputCount());
+	}
+
+	@Test(expected = StepException.class)
+	public void rejectsRulesThatAreNotAnArray() throws StepException {
+		plugin.executeStep(stub.getContext(), configuration(rule("", "a", "1", "=", "1", "one", ""), "false"));
+	}
+
+	@Test(expected = StepException.class)
+	public void rejectsRulesWithoutName() throws StepException {
+		plugin.executeStep(stub.getContext(), configuration("[" + rule("", "", "1", "=", "1", "one", "") + "]", "false"));
+	}
+
+	private Map<String, Object> configuration(String rules, String elevate) {
+		Map<String, Object> configuration = new HashMap<>();
+		configuration.put("group", "raft");
+		configuration.put("rules", rules);
+		configuration.put("elevateToGlobal", elevate);
+		return configuration;
+	}
+
+	private String rule(String group, String name, String testValue, String operator, String comparisonValue,
+			String ifTrue, String ifFalse) {
+		return "{\"group\": \"" + group + "\", \"name\": \"" + name + "\", \"testValue\": \"" + testValue
+				+ "\", \"operator\": \"" + operator + "\", \"comparisonValue\": \"" + comparisonValue
+				+ "\", \"ifTrue\": \"" + ifTrue + "\", \"ifFalse\": \"" + ifFalse + "\"}";
+	}
+}
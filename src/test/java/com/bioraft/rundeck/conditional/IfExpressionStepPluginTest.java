@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dtolabs.rundeck.core.execution.workflow.steps.StepException;
+
+/**
+ * Tests for IfExpressionStepPlugin.
+ */
+public class IfExpressionStepPluginTest {
+
+	IfExpressionStepPlugin plugin;
+
+	StepContextStub stub;
+
+	@Before
+	public void setUp() {
+		this.plugin = new IfExpressionStepPlugin();
+		this.stub = new StepContextStub();
+	}
+
+	@Test
+	public void assignsIfTrue() throws StepException {
+		plugin.executeStep(stub.getContext(), configuration("prod eq prod && 16 >= 8", "yes", "no"));
+		assertEquals("yes", stub.getOutput("raft", "test"));
+	}
+
+	@Test
+	public void assignsIfFalse() throws StepException {
+		plugin.executeStep(stub.getContext(), configuration("prod eq dev || 16 < 8", "yes", "no"));
+		assertEquals("no", stub.getOutput("raft", "test"));
+	}
+
+	@Test
+	public void assignsNothingWithoutIfFalse() throws StepException {
+		plugin.executeStep(stub.getContext(), configuration("prod eq dev", "yes", ""));
+		assertNull(stub.getOutput("raft", "test"));
+	}
+
+	@Test
+	public void comparesUnsetOptionAsEmpty() throws StepException {
+		plugin.executeStep(stub.getContext(), configuration(" = 1 || 16 >= ", "yes", "no"));
+		assertEquals("no", stub.getOutput("raft", "test"));
+	}
+
+	@Test(expected = StepException.class)
+	public void rejectsInvalidCondition() throws StepException {
+		plugin.executeStep(stub.getContext(), configuration("prod eq 'prod", "yes", "no"));
+	}
+
+	private Map<String, Object> configuration(String condition, String ifTrue, String ifFalse) {
+		Map<String, Object> configuration = new HashMap<>();
+		configuration.put("group", "raft");
+		configuration.put("name", "test");
+		configuration.put("condition", condition);
+		configuration.put("ifTrue", ifTrue);
+		configuration.put("ifFalse", ifFalse);
+		return configuration;
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for MappedCaseTable.
+ */
+public class MappedCaseTableTest {
+
+	private Path dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("cases");
+		System.setProperty(MappedCaseTable.CASES_DIR_PROPERTY, dir.toString());
+		System.setProperty(MappedCaseTable.INDEX_DIR_PROPERTY, dir.resolve("index").toString());
+	}
+
+	@After
+	public void tearDown() {
+		System.clearProperty(MappedCaseTable.CASES_DIR_PROPERTY);
+		System.clearProperty(MappedCaseTable.INDEX_DIR_PROPERTY);
+	}
+
+	private Path write(String name, String content) throws IOException {
+		return Files.write(dir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void findsCasesInFile() throws IOException {
+		Path file = write("racks.tsv", "web-02\track-b\nweb-01\track-a\n\ndb-01\track-c\nweb-01\tignored\n\u00e9t\u00e9\tsummer\n");
+		MappedCaseTable table = MappedCaseTable.forFile(file.toString());
+		assertEquals(4, table.size());
+		assertEquals("rack-a", table.find("web-01").getValue());
+		assertEquals("rack-b", table.find("web-02").getValue());
+		assertEquals("rack-c", table.find("db-01").getValue());
+		assertEquals("summer", table.find("\u00e9t\u00e9").getValue());
+		assertNull(table.find("web-03"));
+		assertNull(table.find("web-0"));
+		assertTrue(Files.exists(MappedCaseTable.indexFile(file.toAbsolutePath().normalize())));
+	}
+
+	@Test
+	public void rebuildsIndexWhenFileChanges() throws IOException {
+		Path file = write("owners.tsv", "s1\talice\n");
+		MappedCaseTable table = MappedCaseTable.forFile(file.toString());
+		assertSame(table, MappedCaseTable.forFile(file.toString()));
+		assertEquals("alice", table.find("s1").getValue());
+
+		write("owners.tsv", "s1\tbob\ns2\tcarol\n");
+		Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+		MappedCaseTable changed = MappedCaseTable.forFile(file.toString());
+		assertNotSame(table, changed);
+		assertEquals("bob", changed.find("s1").getValue());
+		assertEquals("carol", changed.find("s2").getValue());
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsLineWithoutTab() throws IOException {
+		MappedCaseTable.forFile(write("bad.tsv", "no tab here\n").toString());
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsFileOutsideCasesDirectory() throws IOException {
+		Path other = Files.createTempDirectory("other");
+		MappedCaseTable.forFile(Files.write(other.resolve("racks.tsv"), "a\tb\n".getBytes(StandardCharsets.UTF_8)).toString());
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsLinkOutOfCasesDirectory() throws IOException {
+		Path other = Files.createTempDirectory("other");
+		Path target = Files.write(other.resolve("racks.tsv"), "a\tb\n".getBytes(StandardCharsets.UTF_8));
+		Path link;
+		try {
+			link = Files.createSymbolicLink(dir.resolve("link.tsv"), target);
+		} catch (UnsupportedOperationException | IOException e) {
+			Assume.assumeTrue(false);
+			return;
+		}
+		MappedCaseTable.forFile(link.toString());
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsAllFilesWithoutCasesDirectory() throws IOException {
+		Path file = write("racks.tsv", "a\tb\n");
+		System.clearProperty(MappedCaseTable.CASES_DIR_PROPERTY);
+		MappedCaseTable.forFile(file.toString());
+	}
+
+	@Test
+	public void allowsDirectoryCreatedAfterFirstLookup() throws IOException {
+		Path later = dir.resolve("later");
+		System.setProperty(MappedCaseTable.CASES_DIR_PROPERTY, dir + File.pathSeparator + later);
+		assertEquals("b", MappedCaseTable.forFile(write("racks.tsv", "a\tb\n").toString()).find("a").getValue());
+		Files.createDirectory(later);
+		Path file = Files.write(later.resolve("racks.tsv"), "a\tc\n".getBytes(StandardCharsets.UTF_8));
+		assertEquals("c", MappedCaseTable.forFile(file.toString()).find("a").getValue());
+	}
+
+	@Test
+	public void checksFileOncePerExecutionStep() throws IOException {
+		Path file = write("racks.tsv", "a\tb\n");
+		StepContextStub stub = new StepContextStub().withData("job", "execid", "31");
+		Switch step = new Switch(stub.getContext(), new HashMap<>(), null).setCasesFile(file.toString());
+		step.switchCase("raft", "rack", "", "a", false);
+		Files.delete(file);
+		stub.reset();
+		step.switchCase("raft", "rack", "", "a", false);
+		assertEquals("b", stub.getOutput("raft", "rack"));
+
+		StepContextStub other = new StepContextStub().withData("job", "execid", "32");
+		try {
+			new Switch(other.getContext(), new HashMap<>(), null).setCasesFile(file.toString()).switchCase("raft",
+					"rack", "", "a", false);
+			fail("Expected UncheckedIOException");
+		} catch (UncheckedIOException e) {
+			// A new execution checks the file again.
+		}
+	}
+
+	@Test
+	public void createsIndexDirectoryForOwnerOnly() throws IOException {
+		Assume.assumeTrue(Files.getFileStore(dir).supportsFileAttributeView(PosixFileAttributeView.class));
+		Path base = Files.createDirectory(dir.resolve("index"));
+		Files.setPosixFilePermissions(base, PosixFilePermissions.fromString("rwxrwxr-x"));
+		MappedCaseTable.forFile(write("racks.tsv", "a\tb\n").toString());
+		Path index = base.resolve(MappedCaseTable.INDEX_SUBDIR);
+		assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(index)));
+		assertEquals("rwxrwxr-x", PosixFilePermissions.toString(Files.getPosixFilePermissions(base)));
+	}
+
+	@Test
+	public void refusesOpenIndexDirectoryWithoutChangingIt() throws IOException {
+		Assume.assumeTrue(Files.getFileStore(dir).supportsFileAttributeView(PosixFileAttributeView.class));
+		Path index = Files.createDirectories(dir.resolve("index").resolve(MappedCaseTable.INDEX_SUBDIR));
+		Files.setPosixFilePermissions(index, PosixFilePermissions.fromString("rwxrwxrwx"));
+		try {
+			MappedCaseTable.forFile(write("racks.tsv", "a\tb\n").toString());
+			fail("Expected IOException");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("correct its permissions"));
+		}
+		assertEquals("rwxrwxrwx", PosixFilePermissions.toString(Files.getPosixFilePermissions(index)));
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(index)) {
+			assertFalse(entries.iterator().hasNext());
+		}
+	}
+
+	@Test
+	public void rejectsIndexWithBadOffsetOrLength() throws IOException {
+		Path file = write("racks.tsv", "web-01\track-a\nweb-02\track-b\n");
+		MappedCaseTable.forFile(file.toString());
+		Path index = MappedCaseTable.indexFile(file.toRealPath());
+		long modified = Files.getLastModifiedTime(file).toMillis();
+		long size = Files.size(file);
+		assertTrue(MappedCaseTable.isValid(map(index), modified, size));
+
+		byte[] bytes = Files.readAllBytes(index);
+		ByteBuffer.wrap(bytes).putInt(28 + 4, Integer.MAX_VALUE);
+		Files.write(index, bytes);
+		assertFalse(MappedCaseTable.isValid(map(index), modified, size));
+
+		bytes = Files.readAllBytes(index);
+		ByteBuffer.wrap(bytes).putInt(28 + 4, 36 + 4 + 6 + 4 + 6);
+		ByteBuffer.wrap(bytes).putInt(36, -1);
+		Files.write(index, bytes);
+		assertFalse(MappedCaseTable.isValid(map(index), modified, size));
+
+		Files.write(index, new byte[] { 0x52, 0x44 });
+		assertFalse(MappedCaseTable.isValid(map(index), modified, size));
+	}
+
+	@Test
+	public void rebuildsInvalidIndex() throws IOException {
+		Path file = write("racks.tsv", "web-01\track-a\n");
+		Path index = MappedCaseTable.indexFile(file.toRealPath());
+		MappedCaseTable.forFile(file.toString());
+		Files.write(index, new byte[] { 1, 2, 3 });
+		Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+		assertEquals("rack-a", MappedCaseTable.forFile(file.toString()).find("web-01").getValue());
+	}
+
+	@Test(expected = UncheckedIOException.class)
+	public void reportsRefusedFileAsCasesFileFailure() throws IOException {
+		Path other = Files.createTempDirectory("other");
+		Path file = Files.write(other.resolve("racks.tsv"), "a\tb\n".getBytes(StandardCharsets.UTF_8));
+		new Switch(new StepContextStub().getContext(), new HashMap<>(), null).setCasesFile(file.toString())
+				.switchCase("raft", "rack", "", "a", false);
+	}
+
+	private static MappedByteBuffer map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+}
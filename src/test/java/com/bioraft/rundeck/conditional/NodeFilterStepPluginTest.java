@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.dtolabs.rundeck.core.execution.workflow.steps.StepException;
+
+/**
+ * Tests for NodeFilterStepPlugin and NodeFilter.
+ */
+public class NodeFilterStepPluginTest {
+
+	private final StepContextStub stub = new StepContextStub().withNodes(
+			StepContextStub.node("web-01", "osFamily", "unix", "cores", "8"),
+			StepContextStub.node("web-02", "osFamily", "unix", "cores", "2"),
+			StepContextStub.node("win-01", "osFamily", "windows", "cores", "16"),
+			StepContextStub.node("db 01", "osFamily", "unix"));
+
+	private final NodeFilterStepPlugin plugin = new NodeFilterStepPlugin();
+
+	private Map<String, Object> cfg(String... entries) {
+		Map<String, Object> cfg = new HashMap<>();
+		cfg.put("group", "raft");
+		cfg.put("name", "nodes");
+		for (int i = 0; i + 1 < entries.length; i += 2) {
+			cfg.put(entries[i], entries[i + 1]);
+		}
+		return cfg;
+	}
+
+	@Test
+	public void selectsNodesByComparison() throws StepException {
+		plugin.executeStep(stub.getContext(),
+				cfg("attribute", "osFamily", "operator", IfElse.STRING_EQ, "comparisonValue", "unix"));
+		assertEquals("name: web-01,web-02,db\\x{20}01", stub.getOutput("raft", "nodes"));
+
+		stub.reset();
+		plugin.executeStep(stub.getContext(),
+				cfg("attribute", "cores", "operator", IfElse.NUMBER_GE, "comparisonValue", "8"));
+		assertEquals("name: web-01,win-01", stub.getOutput("raft", "nodes"));
+	}
+
+	@Test
+	public void selectsNodesByCases() throws StepException {
+		plugin.executeStep(stub.getContext(),
+				cfg("attribute", "nodename", "cases", "\"web-*\": \"true\", \"web-02\": \"false\"", "matchMode",
+						Switch.MODE_GLOB));
+		assertEquals("name: web-01,web-02", stub.getOutput("raft", "nodes"));
+
+		stub.reset();
+		plugin.executeStep(stub.getContext(),
+				cfg("attribute", "osFamily", "cases", "windows: true; unix: false"));
+		assertEquals("name: win-01", stub.getOutput("raft", "nodes"));
+	}
+
+	@Test
+	public void selectsNothing() throws StepException {
+		plugin.executeStep(stub.getContext(),
+				cfg("attribute", "osFamily", "operator", IfElse.STRING_EQ, "comparisonValue", "vms"));
+		assertEquals(NodeFilter.NO_NODES, stub.getOutput("raft", "nodes"));
+
+		StepContextStub noNodes = new StepContextStub();
+		plugin.executeStep(noNodes.getContext(),
+				cfg("attribute", "osFamily", "operator", IfElse.STRING_EQ, "comparisonValue", "unix"));
+		assertEquals(NodeFilter.NO_NODES, noNodes.getOutput("raft", "nodes"));
+	}
+
+	@Test
+	public void elevates() throws StepException {
+		Map<String, Object> cfg = cfg("attribute", "osFamily", "operator", IfElse.STRING_EQ, "comparisonValue",
+				"windows");
+		cfg.put("elevateToGlobal", true);
+		plugin.executeStep(stub.getContext(), cfg);
+		assertEquals("name: win-01", stub.getOutput("export", "raft.nodes"));
+	}
+
+	@Test
+	public void rejectsMissingOrInvalidCondition() {
+		assertFails(cfg("attribute", "osFamily"), NodeFilter.Causes.NO_CONDITION);
+		assertFails(cfg("attribute", "osFamily", "operator", "~~"), NodeFilter.Causes.INVALID_OPERATOR);
+		assertFails(cfg("attribute", "osFamily", "cases", "{\"a\": "), Switch.Causes.INVALID_JSON);
+		assertFails(cfg("attribute", "osFamily", "cases", "a: true", "matchMode", "fuzzy"),
+				Switch.Causes.INVALID_CASE);
+	}
+
+	private void assertFails(Map<String, Object> cfg, Object reason) {
+		try {
+			plugin.executeStep(stub.getContext(), cfg);
+			fail("Expected StepException");
+		} catch (StepException e) {
+			assertEquals(reason, e.getFailureReason());
+		}
+	}
+
+	@Test
+	public void buildsFilterString() {
+		assertEquals("name: a", NodeFilter.filterString(Collections.singletonList("a")));
+		assertEquals("name: web-01,b\\x{2c}c,x\\.example\\.com",
+				NodeFilter.filterString(Arrays.asList("web-01", "b,c", "x.example.com")));
+	}
+
+	@Test
+	public void emptyFilterMatchesNoName() {
+		Pattern pattern = Pattern.compile(NodeFilter.NO_NODES.substring("name: ".length()));
+		for (String name : new String[] { "", "web-01", "(?!)", "name" }) {
+			assertFalse(name, pattern.matcher(name).matches());
+		}
+	}
+
+	@Test
+	public void escapedNamesMatchOnlyThemselves() {
+		String[] names = { "db 01", "a\"b", "back\\slash", "x.example.com", "r[1]*", "p|q", "caf\u00e9", "t\tab" };
+		String filter = NodeFilter.filterString(Arrays.asList(names));
+		String[] patterns = filter.substring("name: ".length()).split(",");
+		assertEquals(names.length, patterns.length);
+		for (int i = 0; i < names.length; i++) {
+			assertFalse(patterns[i], patterns[i].matches(".*[\\s\"',].*"));
+			assertTrue(names[i], Pattern.matches(patterns[i], names[i]));
+			assertFalse(names[i], Pattern.matches(patterns[i], names[i] + "x"));
+		}
+		assertFalse(Pattern.matches(patterns[3], "xxexample.com"));
+	}
+}
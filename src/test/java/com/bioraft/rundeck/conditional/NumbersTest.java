@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for Numbers.
+ */
+public class NumbersTest {
+
+	@Test
+	public void parsesLikeParseDouble() {
+		String[] values = { "0", "-0", "1", "+1", "1.00", "1.000", "-3.25", ".5", "5.", "1e3", "1E-3", "1.5e+2",
+				" 42 ", "1.1f", "2d", "123456789012345678", "12345678901234567890", "0.1", "0.3", "9007199254740993",
+				"3.14159265358979323846", "1e22", "1e23", "1e-22", "4.9e-324", "1.7976931348623157e308", "1e400",
+				"Infinity", "-Infinity", "0.000001234" };
+		for (String value : values) {
+			assertEquals(value, Double.doubleToLongBits(Double.parseDouble(value)),
+					Double.doubleToLongBits(Numbers.parse(value)));
+		}
+	}
+
+	@Test
+	public void parsesRandomDecimalsLikeParseDouble() {
+		Random random = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			StringBuilder value = new StringBuilder();
+			if (random.nextBoolean()) {
+				value.append('-');
+			}
+			value.append(random.nextInt(100000));
+			if (random.nextBoolean()) {
+				value.append('.').append(random.nextInt(Integer.MAX_VALUE));
+			}
+			if (random.nextInt(4) == 0) {
+				value.append('e').append(random.nextInt(40) - 20);
+			}
+			String string = value.toString();
+			assertEquals(string, Double.doubleToLongBits(Double.parseDouble(string)),
+					Double.doubleToLongBits(Numbers.parse(string)));
+		}
+	}
+
+	@Test
+	public void rejectsNonNumbers() {
+		String[] values = { null, "", " ", "-", ".", "e5", "1e", "1e+", "1.2.3", "1 2", "abc", "1a", "0x10", "NaN",
+				"Infinit", "Infinityd", "-InfinityF", "--1", "f" };
+		for (String value : values) {
+			assertFalse(String.valueOf(value), Numbers.isNumber(value));
+		}
+		assertTrue(Numbers.isNumber("1.5"));
+	}
+}
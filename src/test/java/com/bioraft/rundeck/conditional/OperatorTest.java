@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests for Operator.
+ */
+public class OperatorTest {
+
+	@Test
+	public void registersEveryOperator() {
+		assertEquals(Arrays.asList(IfElse.STRING_EQ, IfElse.STRING_NE, IfElse.STRING_LT, IfElse.STRING_LE,
+				IfElse.STRING_GE, IfElse.STRING_GT, IfElse.STRING_BEG, IfElse.STRING_END, IfElse.STRING_MATCH,
+				IfElse.NUMBER_EQ, IfElse.NUMBER_NE, IfElse.NUMBER_LT, IfElse.NUMBER_LE, IfElse.NUMBER_GE, IfElse.NUMBER_GT),
+				Operator.labels());
+		for (Operator operator : Operator.values()) {
+			assertSame(operator, Operator.fromLabel(operator.getLabel()));
+		}
+	}
+
+	@Test
+	public void unknownOperatorIsNotResolved() {
+		assertNull(Operator.fromLabel("EQ"));
+	}
+
+	@Test
+	public void numericOperatorsRequireNumbers() {
+		assertTrue(Operator.NUMBER_EQ.test("1.00", "1.000"));
+		assertFalse(Operator.NUMBER_EQ.test("one", "one"));
+		assertFalse(Operator.NUMBER_NE.test("one", "two"));
+	}
+
+	@Test
+	public void stringOperatorsCompareText() {
+		assertTrue(Operator.STRING_LT.test("apple", "banana"));
+		assertFalse(Operator.STRING_EQ.test("1.00", "1.000"));
+		assertFalse(Operator.STRING_BEG.compare(1, 1));
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.dtolabs.rundeck.core.common.INodeEntry;
+
+/**
+ * Runs shared plugin instances from many threads at once, as Rundeck does when
+ * dispatching a node step to nodes in parallel, and checks that every
+ * invocation sees only its own configuration. Each thread configures values
+ * of its own, so an output leaking from another thread is detected.
+ */
+public class ParallelDispatchTest {
+
+	private static final int INVOCATIONS = 20000;
+
+	private static final int[] THREADS = { 1, 2, 4, 8 };
+
+	private final SwitchCaseNodeStepPlugin switchPlugin = new SwitchCaseNodeStepPlugin();
+
+	private final IfElseNodeStepPlugin ifElsePlugin = new IfElseNodeStepPlugin();
+
+	private static INodeEntry node(String name) {
+		return StepContextStub.proxy(INodeEntry.class,
+				(method, args) -> method.getName().equals("getNodename") ? name : null);
+	}
+
+	/** Run one thread's share of invocations, checking each result. */
+	private Void dispatch(int thread, int invocations) throws Exception {
+		StepContextStub stub = new StepContextStub().withData("job", "execid", "7");
+		INodeEntry node = node("node" + thread);
+		Map<String, Object> cfg = new HashMap<>();
+		cfg.put("group", "raft");
+		cfg.put("name", "test");
+		cfg.put("cases", "\"even\": \"e" + thread + "\", \"odd\": \"o" + thread + "\"");
+		cfg.put("operator", IfElse.NUMBER_GT);
+		cfg.put("comparisonValue", "0");
+		cfg.put("ifTrue", "positive" + thread);
+		cfg.put("ifFalse", "negative" + thread);
+
+		for (int i = 0; i < invocations; i++) {
+			boolean elevate = (i + thread) % 2 == 0;
+			cfg.put("elevateToGlobal", elevate ? "true" : "false");
+
+			stub.reset();
+			cfg.put("testValue", i % 2 == 0 ? "even" : "odd");
+			switchPlugin.executeNodeStep(stub.getContext(), cfg, node);
+			String expected = (i % 2 == 0 ? "e" : "o") + thread;
+			assertOutputs(stub, expected, elevate);
+
+			stub.reset();
+			cfg.put("elevateToGlobal", elevate);
+			cfg.put("testValue", String.valueOf(i % 3 - 1));
+			ifElsePlugin.executeNodeStep(stub.getContext(), cfg, node);
+			expected = (i % 3 - 1 > 0 ? "positive" : "negative") + thread;
+			assertOutputs(stub, expected, elevate);
+		}
+		return null;
+	}
+
+	/** Check that exactly the expected variable, and its export if elevated, was written. */
+	private static void assertOutputs(StepContextStub stub, String expected, boolean elevate) {
+		assertEquals(expected, stub.getOutput("raft", "test"));
+		assertEquals(elevate ? expected : null, stub.getOutput("export", "raft.test"));
+		assertEquals(elevate ? 2 : 1, stub.getOutputCount());
+	}
+
+	@Test
+	public void sharedInstancesAreThreadSafe() throws Exception {
+		for (int threads : THREADS) {
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				List<Callable<Void>> tasks = new ArrayList<>();
+				for (int t = 0; t < threads; t++) {
+					int thread = t;
+					tasks.add(() -> dispatch(thread, INVOCATIONS / threads));
+				}
+				for (Future<Void> future : executor.invokeAll(tasks)) {
+					future.get();
+				}
+			} finally {
+				executor.shutdown();
+			}
+		}
+	}
+}
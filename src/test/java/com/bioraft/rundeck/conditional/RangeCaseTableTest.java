@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Tests for RangeCaseTable.
+ */
+public class RangeCaseTableTest {
+
+	private static RangeCaseTable compile(String cases) throws JsonProcessingException {
+		return new RangeCaseTable(CaseEntries.parse(cases));
+	}
+
+	@Test
+	public void findsContainingRange() throws JsonProcessingException {
+		RangeCaseTable table = compile("\"[90,]\": \"critical\", \"[0,50)\": \"ok\", \"[50,90)\": \"warn\"");
+		assertEquals(3, table.size());
+		assertEquals("ok", table.find("0").getValue());
+		assertEquals("ok", table.find("49.99").getValue());
+		assertEquals("warn", table.find("50").getValue());
+		assertEquals("critical", table.find("90").getValue());
+		assertEquals("critical", table.find("1e6").getValue());
+		assertNull(table.find("-1"));
+		assertNull(table.find("full"));
+	}
+
+	@Test
+	public void honoursOpenAndClosedBounds() throws JsonProcessingException {
+		RangeCaseTable table = compile("\"(,5)\": \"low\", \"[5,5]\": \"five\", \"(5,10]\": \"high\"");
+		assertEquals("low", table.find("4.5").getValue());
+		assertEquals("five", table.find("5").getValue());
+		assertEquals("high", table.find("5.01").getValue());
+		assertEquals("high", table.find("10").getValue());
+		assertNull(table.find("10.01"));
+	}
+
+	@Test
+	public void leavesGapsUnmatched() throws JsonProcessingException {
+		RangeCaseTable table = compile("\"[0,1)\": \"a\", \"[2,3)\": \"b\"");
+		assertNull(table.find("1.5"));
+		assertNull(table.find("3"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsOverlappingRanges() throws JsonProcessingException {
+		compile("\"[0,50]\": \"ok\", \"[50,90)\": \"warn\"");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsEmptyRange() throws JsonProcessingException {
+		compile("\"[5,5)\": \"none\"");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsMalformedRange() throws JsonProcessingException {
+		compile("\"0-50\": \"ok\"");
+	}
+}
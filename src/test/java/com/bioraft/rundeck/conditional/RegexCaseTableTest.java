@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Tests for RegexCaseTable.
+ */
+public class RegexCaseTableTest {
+
+	@Test
+	public void firstMatchingPatternWins() throws JsonProcessingException {
+		RegexCaseTable table = new RegexCaseTable(CaseEntries.parse("\"^web-\": \"web\", \"-\\\\d+$\": \"numbered\", \".\": \"other\""));
+		assertEquals("web", table.find("web-01").getValue());
+		assertEquals("numbered", table.find("db-01").getValue());
+		assertEquals("other", table.find("cache").getValue());
+		assertNull(table.find(""));
+	}
+
+	@Test
+	public void reusesCompiledCases() throws JsonProcessingException {
+		String cases = "\"^a\": \"1\"";
+		assertSame(MatchMode.REGEX.forCases(cases), MatchMode.REGEX.forCases(new String(cases)));
+		assertSame(Patterns.compile("^a"), Patterns.compile(new String("^a")));
+	}
+
+	@Test(expected = PatternSyntaxException.class)
+	public void rejectsInvalidPattern() throws JsonProcessingException {
+		MatchMode.REGEX.forCases("\"[unclosed\": \"1\"");
+	}
+
+	@Test
+	public void resolvesModeLabels() {
+		assertSame(MatchMode.EXACT, MatchMode.fromLabel(""));
+		assertSame(MatchMode.EXACT, MatchMode.fromLabel(Switch.MODE_EXACT));
+		assertSame(MatchMode.REGEX, MatchMode.fromLabel(Switch.MODE_REGEX));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUnknownMode() {
+		MatchMode.fromLabel("fuzzy");
+	}
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dtolabs.rundeck.core.common.INodeEntry;
+import com.dtolabs.rundeck.core.common.INodeSet;
+import com.dtolabs.rundeck.core.execution.workflow.FlowControl;
+import com.dtolabs.rundeck.core.execution.workflow.SharedOutputContext;
+import com.dtolabs.rundeck.core.execution.workflow.StepExecutionContext;
+import com.dtolabs.rundeck.plugins.PluginLogger;
+import com.dtolabs.rundeck.plugins.step.PluginStepContext;
+
+/**
+ * Lightweight, thread-safe stand-in for the Rundeck step context used by
+ * benchmarks and load tests, where mocks would dominate the measurements.
+ *
+ * Outputs are recorded as "group.name" keys; values elevated to the global
+ * context are recorded as "export.group.name".
+ */
+public class StepContextStub {
+
+	private static final Object[] NO_ARGS = new Object[0];
+
+	private final Map<String, String> outputs = new ConcurrentHashMap<>();
+
+	private final Map<String, Map<String, String>> dataContext = new HashMap<>();
+
+	private final AtomicLong outputCount = new AtomicLong();
+
+	private final AtomicLong logCount = new AtomicLong();
+
+	/** The last flow control call, e.g. "Halt(true)", or null. */
+	private volatile String flowControlCall;
+
+	private final FlowControl flowControl;
+
+	/** Nodes of the execution, or null to leave them unset. */
+	private volatile INodeSet nodes;
+
+	/** Execution log level, or null to leave the execution context unset. */
+	private volatile Integer logLevel;
+
+	private final PluginLogger logger;
+
+	private final SharedOutputContext outputContext;
+
+	private final StepExecutionContext executionContext;
+
+	private final List<Integer> stepContext = Collections.singletonList(1);
+
+	private final PluginStepContext context;
+
+	public StepContextStub() {
+		logger = proxy(PluginLogger.class, (method, args) -> {
+			if (method.getName().equals("log")) {
+				logCount.incrementAndGet();
+			}
+			return null;
+		});
+		outputContext = proxy(SharedOutputContext.class, (method, args) -> {
+			if (method.getName().equals("addOutput") && args.length >= 3) {
+				int last = args.length - 1;
+				outputs.put(args[last - 2] + "." + args[last - 1], String.valueOf(args[last]));
+				outputCount.incrementAndGet();
+			}
+			return null;
+		});
+		flowControl = proxy(FlowControl.class, (method, args) -> {
+			flowControlCall = method.getName() + "(" + (args.length == 0 ? "" : String.valueOf(args[0])) + ")";
+			return null;
+		});
+		executionContext = proxy(StepExecutionContext.class,
+				(method, args) -> method.getName().equals("getLoglevel") ? logLevel : null);
+		context = proxy(PluginStepContext.class, (method, args) -> {
+			switch (method.getName()) {
+			case "getLogger":
+				return logger;
+			case "getOutputContext":
+				return outputContext;
+			case "getDataContext":
+				return dataContext;
+			case "getStepNumber":
+				return 1;
+			case "getStepContext":
+				return stepContext;
+			case "getNodes":
+				return nodes;
+			case "getFlowControl":
+				return flowControl;
+			case "getExecutionContext":
+				return logLevel == null ? null : executionContext;
+			default:
+				return null;
+			}
+		});
+	}
+
+	public PluginStepContext getContext() {
+		return context;
+	}
+
+	public SharedOutputContext getOutputContext() {
+		return outputContext;
+	}
+
+	public PluginLogger getLogger() {
+		return logger;
+	}
+
+	/**
+	 * Set the log level reported by the execution context.
+	 *
+	 * @param logLevel One of the Constants log levels.
+	 * @return self
+	 */
+	public StepContextStub withLogLevel(int logLevel) {
+		this.logLevel = logLevel;
+		return this;
+	}
+
+	/**
+	 * Set the nodes of the execution.
+	 *
+	 * @param entries The nodes.
+	 * @return self
+	 */
+	public StepContextStub withNodes(INodeEntry... entries) {
+		List<INodeEntry> list = Arrays.asList(entries);
+		nodes = proxy(INodeSet.class, (method, args) -> {
+			switch (method.getName()) {
+			case "getNodes":
+				return list;
+			case "iterator":
+				return list.iterator();
+			default:
+				return null;
+			}
+		});
+		return this;
+	}
+
+	/**
+	 * Create a node with the given name and attributes.
+	 *
+	 * @param name       Node name.
+	 * @param attributes Alternating attribute names and values.
+	 * @return The node.
+	 */
+	public static INodeEntry node(String name, String... attributes) {
+		Map<String, String> map = new HashMap<>();
+		map.put("nodename", name);
+		for (int i = 0; i + 1 < attributes.length; i += 2) {
+			map.put(attributes[i], attributes[i + 1]);
+		}
+		return proxy(INodeEntry.class, (method, args) -> {
+			switch (method.getName()) {
+			case "getNodename":
+				return name;
+			case "getAttributes":
+				return map;
+			default:
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Add a value to the data context, i.e. ${group.key}.
+	 *
+	 * @param group Data context group.
+	 * @param key   Key within the group.
+	 * @param value The value.
+	 * @return self
+	 */
+	public StepContextStub withData(String group, String key, String value) {
+		dataContext.computeIfAbsent(group, k -> new HashMap<>()).put(key, value);
+		return this;
+	}
+
+	/**
+	 * Get a recorded output.
+	 *
+	 * @param group Variable group.
+	 * @param name  Variable name.
+	 * @return The last value written, or null.
+	 */
+	public String getOutput(String group, String name) {
+		return outputs.get(group + "." + name);
+	}
+
+	public Map<String, String> getOutputs() {
+		return outputs;
+	}
+
+	/**
+	 * Get the last call made to the flow control.
+	 *
+	 * @return The call, e.g. "Continue()" or "Halt(false)", or null.
+	 */
+	public String getFlowControlCall() {
+		return flowControlCall;
+	}
+
+	public long getOutputCount() {
+		return outputCount.get();
+	}
+
+	public long getLogCount() {
+		return logCount.get();
+	}
+
+	public void reset() {
+		outputs.clear();
+		outputCount.set(0);
+		logCount.set(0);
+		flowControlCall = null;
+	}
+
+	interface Handler {
+		Object invoke(Method method, Object[] args);
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> T proxy(Class<T> type, Handler handler) {
+		return (T) Proxy.newProxyInstance(StepContextStub.class.getClassLoader(), new Class<?>[] { type },
+				(proxy, method, args) -> {
+					if (method.getDeclaringClass() == Object.class) {
+						return objectMethod(proxy, method, args);
+					}
+					Object result = handler.invoke(method, args == null ? NO_ARGS : args);
+					return result == null ? defaultValue(method.getReturnType()) : result;
+				});
+	}
+
+	private static Object objectMethod(Object proxy, Method method, Object[] args) {
+		switch (method.getName()) {
+		case "equals":
+			return proxy == args[0];
+		case "hashCode":
+			return System.identityHashCode(proxy);
+		default:
+			return "StepContextStub proxy";
+		}
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (type == List.class) {
+			return new ArrayList<>();
+		} else if (!type.isPrimitive() || type == void.class) {
+			return null;
+		}
+		return Array.get(Array.newInstance(type, 1), 0);
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.dtolabs.rundeck.core.Constants;
+
+/**
+ * Tests for StepLogger.
+ */
+public class StepLoggerTest {
+
+	@Test
+	public void logsAtDebugLevel() {
+		StepContextStub stub = new StepContextStub().withLogLevel(Constants.DEBUG_LEVEL);
+		StepLogger log = new StepLogger(stub.getContext());
+		assertTrue(log.isDebugEnabled());
+		log.debug("message");
+		log.debug(() -> "lazy message");
+		assertEquals(2, stub.getLogCount());
+	}
+
+	@Test
+	public void skipsDebugMessagesAtNormalLevel() {
+		StepContextStub stub = new StepContextStub().withLogLevel(Constants.INFO_LEVEL);
+		StepLogger log = new StepLogger(stub.getContext());
+		assertFalse(log.isDebugEnabled());
+		log.debug("message");
+		log.debug(() -> {
+			throw new AssertionError("message should not be built");
+		});
+		log.error("error");
+		assertEquals(1, stub.getLogCount());
+	}
+
+	@Test
+	public void logsWhenLevelIsUnknown() {
+		StepContextStub stub = new StepContextStub();
+		new StepLogger(stub.getContext()).debug("message");
+		assertEquals(1, stub.getLogCount());
+	}
+}
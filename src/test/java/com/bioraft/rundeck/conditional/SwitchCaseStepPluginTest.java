@@ -80,6 +80,9 @@ public class SwitchCaseStepPluginTest extends SwitchTestBase {
 		assertEquals(expected, Switch.ensureStringIsJsonObject("{" + given + "}"));
 		assertEquals(expected, Switch.ensureStringIsJsonObject("{" + given + ",}"));
 		assertEquals(expected, Switch.ensureStringIsJsonObject("{" + given + ", } "));
+		String object = "\"p\": {\"x\": \"}\"}";
+		assertEquals("{" + object + "}", Switch.ensureStringIsJsonObject(object));
+		assertEquals("{" + object + "}", Switch.ensureStringIsJsonObject(object + ","));
 	}
 
 	@Test
@@ -152,6 +155,20 @@ public class SwitchCaseStepPluginTest extends SwitchTestBase {
 		validInput(caseString.toString());
 	}
 
+	@Test
+	public void runTestObjectCase() throws StepException {
+		StringBuffer caseString = new StringBuffer("\"k1\": \"v1\", \"k2\": {\"region\": \"east\", \"bucket\": \"b2\"}");
+		Map<String, Object> configuration = getConfiguration("k2", caseString, defaultValue);
+
+		when(context.getOutputContext()).thenReturn(sharedOutputContext);
+		when(context.getLogger()).thenReturn(logger);
+
+		this.plugin.executeStep(context, configuration);
+		verify(context, times(2)).getOutputContext();
+		verify(sharedOutputContext, times(1)).addOutput(eq(group), eq("region"), eq("east"));
+		verify(sharedOutputContext, times(1)).addOutput(eq(group), eq("bucket"), eq("b2"));
+	}
+
 	@Test(expected = StepException.class)
 	public void testInvalidCases() throws StepException {
 		StringBuffer caseString = new StringBuffer();
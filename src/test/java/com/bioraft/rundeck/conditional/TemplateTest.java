@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Tests for Template and switch cases with template values.
+ */
+public class TemplateTest {
+
+	private static Map<String, Map<String, String>> data() {
+		Map<String, Map<String, String>> data = new HashMap<>();
+		Map<String, String> node = new HashMap<>();
+		node.put("hostname", "web-01.example.com");
+		node.put("rack", "b");
+		data.put("node", node);
+		data.put("option", Collections.singletonMap("env", "prod"));
+		return data;
+	}
+
+	@Test
+	public void rendersPlaceholders() {
+		Template template = Template.compile("https://%{node.hostname}:8443/%{option.env}");
+		assertTrue(template.hasPlaceholders());
+		assertEquals("https://web-01.example.com:8443/prod", template.render(data()));
+		assertEquals("rack-b", Template.compile("rack-%{node.rack}").render(data()));
+	}
+
+	@Test
+	public void missingValuesRenderEmpty() {
+		assertEquals("a--b", Template.compile("a-%{node.missing}-b").render(data()));
+		assertEquals("a--b", Template.compile("a-%{nogroup.key}-b").render(data()));
+		assertEquals("a--b", Template.compile("a-%{node.hostname}-b").render(null));
+	}
+
+	@Test
+	public void keepsIncompletePlaceholders() {
+		for (String text : new String[] { "plain", "", "100%", "%{", "%{node", "%{node.hostname", "%{nodot}", "%{.key}",
+				"%{group.}", "{node.rack}", "${node.rack}" }) {
+			Template template = Template.compile(text);
+			assertFalse(text, template.hasPlaceholders());
+			assertEquals(text, template.render(data()));
+		}
+		assertEquals("%{b", Template.compile("%{%{node.rack}").render(data()));
+	}
+
+	@Test
+	public void bindsOnlyResultsWithPlaceholders() throws JsonProcessingException {
+		CaseEntries entries = CaseEntries.parse(
+				"\"web\": \"%{node.hostname}\", \"db\": \"static\", \"app\": {\"url\": \"http://%{node.hostname}\", \"env\": \"%{option.env}\"}");
+		CaseResult plain = entries.getResult(1);
+		assertSame(plain, plain.bind(data()));
+		assertEquals("web-01.example.com", entries.getResult(0).bind(data()).getValue());
+		CaseResult fields = entries.getResult(2).bind(data());
+		assertEquals("http://web-01.example.com", fields.getField("url"));
+		assertEquals("prod", fields.getField("env"));
+		assertEquals("%{node.hostname}", entries.getResult(0).getValue());
+	}
+
+	@Test
+	public void switchSubstitutesMatchedValue() throws JsonProcessingException {
+		String cases = "\"web\": \"%{node.hostname}:80\", \"db\": \"%{node.hostname}:5432\"";
+		StepContextStub stub = new StepContextStub().withData("node", "hostname", "web-01");
+		new Switch(stub.getContext(), new HashMap<>(), null).setTemplates(true).switchCase("raft", "url", cases, "db",
+				false);
+		assertEquals("web-01:5432", stub.getOutput("raft", "url"));
+
+		stub.reset();
+		new Switch(stub.getContext(), new HashMap<>(), null).switchCase("raft", "url", cases, "db", false);
+		assertEquals("%{node.hostname}:5432", stub.getOutput("raft", "url"));
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (http://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Tests for TrieCaseTable.
+ */
+public class TrieCaseTableTest {
+
+	@Test
+	public void longestPrefixWins() throws JsonProcessingException {
+		TrieCaseTable table = new TrieCaseTable(
+				CaseEntries.parse("\"web\": \"frontend\", \"web-db\": \"data\", \"/var/log\": \"ops\""), false);
+		assertEquals("frontend", table.find("web-01").getValue());
+		assertEquals("data", table.find("web-db-01").getValue());
+		assertEquals("frontend", table.find("web").getValue());
+		assertEquals("ops", table.find("/var/log/messages").getValue());
+		assertNull(table.find("we"));
+		assertNull(table.find("db-web"));
+	}
+
+	@Test
+	public void longestSuffixWins() throws JsonProcessingException {
+		TrieCaseTable table = new TrieCaseTable(
+				CaseEntries.parse("\".example.com\": \"public\", \".eu.example.com\": \"europe\""), true);
+		assertEquals("public", table.find("www.example.com").getValue());
+		assertEquals("europe", table.find("db.eu.example.com").getValue());
+		assertNull(table.find("example.org"));
+	}
+
+	@Test
+	public void emptyKeyMatchesEverything() throws JsonProcessingException {
+		TrieCaseTable table = new TrieCaseTable(CaseEntries.parse("\"\": \"any\", \"a\": \"a\""), false);
+		assertEquals("any", table.find("b").getValue());
+		assertEquals("any", table.find("").getValue());
+		assertEquals("a", table.find("abc").getValue());
+	}
+
+	@Test
+	public void buildsTrieForVeryLongKey() throws JsonProcessingException {
+		char[] chars = new char[200000];
+		Arrays.fill(chars, 'a');
+		String key = new String(chars);
+		for (boolean suffix : new boolean[] { false, true }) {
+			TrieCaseTable table = new TrieCaseTable(CaseEntries.parse("\"" + key + "\": \"long\", \"a\": \"short\""),
+					suffix);
+			assertEquals("long", table.find(suffix ? "b" + key : key + "b").getValue());
+			assertEquals("short", table.find(suffix ? "ba" : "ab").getValue());
+		}
+	}
+}